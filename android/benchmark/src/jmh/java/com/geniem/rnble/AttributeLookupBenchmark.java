@@ -0,0 +1,85 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Characteristic lookup of read, write and notify, from the uuid strings JS sends.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttributeLookupBenchmark {
+    @Param({"4", "16"})
+    public int services;
+
+    private static final int CHARACTERISTICS = 8;
+
+    private AttributeIndex index;
+    private String[] serviceUuids;
+    private String[] characteristicUuids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        index = new AttributeIndex(BenchmarkData.services(services, CHARACTERISTICS));
+        serviceUuids = new String[services * CHARACTERISTICS];
+        characteristicUuids = new String[services * CHARACTERISTICS];
+        for(int s = 0; s < services; s++) {
+            for(int c = 0; c < CHARACTERISTICS; c++) {
+                serviceUuids[s * CHARACTERISTICS + c] = BenchmarkData.toApple(BenchmarkData.serviceUuid(s));
+                characteristicUuids[s * CHARACTERISTICS + c] = BenchmarkData.toApple(BenchmarkData.characteristicUuid(s, c));
+            }
+        }
+    }
+
+    @Benchmark
+    public BluetoothGattCharacteristic getCharacteristic() {
+        int i = next;
+        next = (next + 1) % serviceUuids.length;
+        return index.getCharacteristic(RnbleUuids.parse(serviceUuids[i]), RnbleUuids.parse(characteristicUuids[i]));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.os.ParcelUuid;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Scan results and attribute trees shaped like the ones seen in the field.
+ */
+final class BenchmarkData {
+    static final ParcelUuid HEART_RATE = ParcelUuid.fromString("0000180d-0000-1000-8000-00805f9b34fb");
+    static final ParcelUuid BATTERY = ParcelUuid.fromString("0000180f-0000-1000-8000-00805f9b34fb");
+
+    private BenchmarkData() {}
+
+    static String address(int i) {
+        return String.format("C4:7C:8D:%02X:%02X:%02X", (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+    }
+
+    static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param kind "plain" - two service uuids, battery service data and manufacturer data,
+     *   "iBeacon" - Apple manufacturer data, "eddystone" - Eddystone UID service data
+     */
+    static ScanResult scanResult(String kind, int deviceIndex) {
+        List<ParcelUuid> serviceUuids = new ArrayList<ParcelUuid>();
+        SparseArray<byte[]> manufacturerData = new SparseArray<byte[]>();
+        Map<ParcelUuid, byte[]> serviceData = new LinkedHashMap<ParcelUuid, byte[]>();
+        if(kind.equals("iBeacon")) {
+            byte[] data = randomBytes(23, deviceIndex);
+            data[0] = 0x02;
+            data[1] = 0x15;
+            data[22] = -59;
+            manufacturerData.put(BeaconDecoder.APPLE_COMPANY_ID, data);
+        } else if(kind.equals("eddystone")) {
+            byte[] data = randomBytes(20, deviceIndex);
+            data[0] = 0x00;
+            data[1] = -18;
+            serviceUuids.add(BeaconDecoder.EDDYSTONE_SERVICE_UUID);
+            serviceData.put(BeaconDecoder.EDDYSTONE_SERVICE_UUID, data);
+        } else {
+            serviceUuids.add(HEART_RATE);
+            serviceUuids.add(BATTERY);
+            serviceData.put(BATTERY, new byte[] {87});
+            manufacturerData.put(0x0059, randomBytes(8, deviceIndex));
+        }
+        ScanRecord record = new ScanRecord(serviceUuids, manufacturerData, serviceData, 0x06, -4,
+                "Sensor " + deviceIndex, randomBytes(31, deviceIndex));
+        return new ScanResult(new BluetoothDevice(address(deviceIndex)), record, -67, 0);
+    }
+
+    static List<BluetoothGattService> services(int serviceCount, int characteristicCount) {
+        List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        for(int s = 0; s < serviceCount; s++) {
+            BluetoothGattService service = new BluetoothGattService(serviceUuid(s), BluetoothGattService.SERVICE_TYPE_PRIMARY);
+            for(int c = 0; c < characteristicCount; c++) {
+                service.addCharacteristic(new BluetoothGattCharacteristic(characteristicUuid(s, c),
+                        BluetoothGattCharacteristic.PROPERTY_READ | BluetoothGattCharacteristic.PROPERTY_NOTIFY,
+                        BluetoothGattCharacteristic.PERMISSION_READ));
+            }
+            services.add(service);
+        }
+        return Collections.unmodifiableList(services);
+    }
+
+    static UUID serviceUuid(int s) {
+        return UUID.fromString(String.format("6e40%04x-b5a3-f393-e0a9-e50e24dcca9e", s));
+    }
+
+    static UUID characteristicUuid(int s, int c) {
+        return UUID.fromString(String.format("6e40%02x%02x-b5a3-f393-e0a9-e50e24dcca9e", s, c + 0x80));
+    }
+
+    // uuids arrive from JS in Apple format
+    static String toApple(UUID uuid) {
+        return uuid.toString().toUpperCase();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.facebook.react.bridge.WritableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the ble.data params of a notification, onCharacteristicChanged without the bridge.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificationEventBenchmark {
+    @Param({"20", "244"})
+    public int size;
+
+    @Param({"base64", "hex"})
+    public String encoding;
+
+    private BluetoothGattCharacteristic characteristic;
+    private byte[] value;
+    private boolean hex;
+
+    @Setup
+    public void setUp() {
+        characteristic = BenchmarkData.services(1, 1).get(0).getCharacteristics().get(0);
+        value = BenchmarkData.randomBytes(size, size);
+        hex = encoding.equals("hex");
+    }
+
+    @Benchmark
+    public WritableMap createDataParams() {
+        WritableMap params = RnbleEvents.createAttributeParams("C4:7C:8D:00:00:01", characteristic);
+        params.putString("data", RnbleEvents.encodePayload(value, hex));
+        params.putBoolean("isNotification", true);
+        return params;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload encodings of ble.data and ble.discover per payload size: "legacy" is the old
+ * Arrays.toString array the bindings had to JSON.parse. encode is the native side, decode
+ * stands in for the bindings turning the string back into bytes. The characters sent over the
+ * bridge per payload are printed at the end of every trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadEncodingBenchmark {
+    @Param({"20", "244", "512"})
+    public int size;
+
+    @Param({"legacy", "base64", "hex"})
+    public String encoding;
+
+    private byte[] value;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        value = BenchmarkData.randomBytes(size, size);
+        encoded = encode();
+        if(!Arrays.equals(value, decode())) {
+            throw new IllegalStateException(encoding + " doesn't round trip");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printBridgeSize() {
+        System.out.println();
+        System.out.println(String.format("%s, %d bytes: %d chars on the bridge, %.2f per byte",
+                encoding, size, encoded.length(), (double) encoded.length() / size));
+    }
+
+    @Benchmark
+    public String encode() {
+        if(encoding.equals("legacy")) {
+            return Arrays.toString(value);
+        }
+        return RnbleEvents.encodePayload(value, encoding.equals("hex"));
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        if(encoding.equals("legacy")) {
+            return parseArray(encoded);
+        } else if(encoding.equals("hex")) {
+            return parseHex(encoded);
+        }
+        return Base64.getDecoder().decode(encoded);
+    }
+
+    // what JSON.parse and new Buffer(array) did with "[12, -3, ...]"
+    private static byte[] parseArray(String array) {
+        byte[] bytes = new byte[array.length() / 2];
+        int count = 0;
+        int value = 0;
+        boolean negative = false;
+        for(int i = 1; i < array.length(); i++) {
+            char c = array.charAt(i);
+            if(c == '-') {
+                negative = true;
+            } else if(c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else if(c == ',' || c == ']') {
+                if(i > 1) {bytes[count++] = (byte) (negative ? -value : value);}
+                value = 0;
+                negative = false;
+            }
+        }
+        return Arrays.copyOf(bytes, count);
+    }
+
+    private static byte[] parseHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((Character.digit(hex.charAt(i * 2), 16) << 4) | Character.digit(hex.charAt(i * 2 + 1), 16));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate filtering of the scan callback. With 64 devices every advertisement after the first
+ * round is a duplicate, with 4096 devices the table is full and keeps evicting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScanDeduplicatorBenchmark {
+    @Param({"64", "4096"})
+    public int devices;
+
+    private ScanDeduplicator deduplicator;
+    private String[] addresses;
+    private int next;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        deduplicator = new ScanDeduplicator(ScanDeduplicator.DEFAULT_CAPACITY, 10000);
+        addresses = new String[devices];
+        for(int i = 0; i < devices; i++) {
+            addresses[i] = BenchmarkData.address(i);
+        }
+    }
+
+    @Benchmark
+    public boolean shouldReport() {
+        String address = addresses[next];
+        next = (next + 1) % addresses.length;
+        // one advertisement per ms
+        return deduplicator.shouldReport(address, now++);
+    }
+
+    @Benchmark
+    public long packAddress() {
+        String address = addresses[next];
+        next = (next + 1) % addresses.length;
+        return ScanDeduplicator.packAddress(address);
+    }
+}
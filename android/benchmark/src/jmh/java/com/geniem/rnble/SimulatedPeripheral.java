@@ -0,0 +1,82 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import java.util.Arrays;
+
+/**
+ * A peripheral that accepts characteristic writes and acknowledges them when the benchmark
+ * delivers the onCharacteristicWrite callback. Like the controller it refuses a write while the
+ * previous one is unacknowledged, and it keeps what it received so the payload can be checked.
+ */
+class SimulatedPeripheral extends BluetoothGatt {
+    private final byte[] received;
+    private int receivedLength;
+    private BluetoothGattCharacteristic unacknowledged;
+    // writes refused because the previous one wasn't acknowledged yet
+    int refusedWrites;
+
+    SimulatedPeripheral(int capacity) {
+        received = new byte[capacity];
+    }
+
+    @Override
+    public boolean writeCharacteristic(BluetoothGattCharacteristic characteristic) {
+        if(unacknowledged != null) {
+            refusedWrites++;
+            return false;
+        }
+        byte[] value = characteristic.getValue();
+        System.arraycopy(value, 0, received, receivedLength, value.length);
+        receivedLength += value.length;
+        unacknowledged = characteristic;
+        return true;
+    }
+
+    /**
+     * @return the characteristic of the write acknowledged now, null if no write is outstanding
+     */
+    BluetoothGattCharacteristic acknowledge() {
+        BluetoothGattCharacteristic characteristic = unacknowledged;
+        unacknowledged = null;
+        return characteristic;
+    }
+
+    void reset() {
+        receivedLength = 0;
+        unacknowledged = null;
+    }
+
+    byte[] received() {
+        return Arrays.copyOf(received, receivedLength);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+import android.util.Base64;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Native throughput of a large write without response against a simulated peripheral:
+ * writeStream chunks one payload and paces the chunks from the write acknowledgements,
+ * writePerChunk is the old way of one base64 write() call per chunk. The bridge crossings of
+ * writePerChunk aren't included, so its cost is a lower bound. The bytes counter is the payload
+ * throughput in bytes/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteStreamBenchmark {
+    @Param({"4096", "65536"})
+    public int payloadSize;
+
+    // MTU - 3 for the default and a typical negotiated MTU
+    @Param({"20", "244"})
+    public int chunkSize;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transferred {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    private BluetoothGattCharacteristic characteristic;
+    private byte[] payload;
+    private String[] base64Chunks;
+    private SimulatedPeripheral peripheral;
+    private GattOperationQueue queue;
+
+    @Setup
+    public void setUp() {
+        characteristic = BenchmarkData.services(1, 1).get(0).getCharacteristics().get(0);
+        payload = BenchmarkData.randomBytes(payloadSize, payloadSize);
+        base64Chunks = new String[(payloadSize + chunkSize - 1) / chunkSize];
+        for(int i = 0; i < base64Chunks.length; i++) {
+            byte[] chunk = Arrays.copyOfRange(payload, i * chunkSize, Math.min((i + 1) * chunkSize, payloadSize));
+            base64Chunks[i] = Base64.encodeToString(chunk, Base64.NO_WRAP);
+        }
+        peripheral = new SimulatedPeripheral(payloadSize);
+        queue = new GattOperationQueue(new Handler(), new GattOperationQueue.Listener() {
+            @Override
+            public void onOperationFailed(GattOperation operation, int errorCode, String errorMessage) {
+                throw new IllegalStateException(errorMessage);
+            }
+        });
+        queue.setGatt(peripheral);
+
+        Transferred transferred = new Transferred();
+        writeStream(transferred);
+        check("writeStream");
+        writePerChunk(transferred);
+        check("writePerChunk");
+    }
+
+    private void check(String benchmark) {
+        if(!Arrays.equals(payload, peripheral.received()) || peripheral.refusedWrites > 0) {
+            throw new IllegalStateException(benchmark + " didn't deliver the payload in order");
+        }
+    }
+
+    @Benchmark
+    public WriteStream writeStream(Transferred transferred) {
+        peripheral.reset();
+        WriteStream stream = new WriteStream("benchmark", characteristic, payload, chunkSize, true, 100);
+        queue.enqueue(stream.nextChunk());
+        BluetoothGattCharacteristic acknowledged;
+        while((acknowledged = peripheral.acknowledge()) != null) {
+            // what onCharacteristicWrite does for a successful stream chunk
+            GattOperation operation = queue.complete(GattOperation.WRITE_CHARACTERISTIC, acknowledged);
+            operation.stream.chunkWritten();
+            if(operation.stream.isComplete()) {break;}
+            operation.stream.progressDue();
+            queue.enqueue(operation.stream.nextChunk());
+        }
+        transferred.bytes += stream.bytesWritten();
+        return stream;
+    }
+
+    @Benchmark
+    public int writePerChunk(Transferred transferred) {
+        peripheral.reset();
+        for(String chunk : base64Chunks) {
+            queue.enqueue(GattOperation.write(characteristic, Base64.decode(chunk, Base64.DEFAULT), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE));
+            queue.complete(GattOperation.WRITE_CHARACTERISTIC, peripheral.acknowledge());
+        }
+        transferred.bytes += payload.length;
+        return queue.size();
+    }
+}
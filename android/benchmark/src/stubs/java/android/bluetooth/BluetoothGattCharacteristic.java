@@ -0,0 +1,94 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package android.bluetooth;
+
+import java.util.UUID;
+
+/**
+ * JVM stand-in for the Android class, only what the benchmarked code uses.
+ */
+public class BluetoothGattCharacteristic {
+    public static final int PROPERTY_READ = 0x02;
+    public static final int PROPERTY_WRITE_NO_RESPONSE = 0x04;
+    public static final int PROPERTY_WRITE = 0x08;
+    public static final int PROPERTY_NOTIFY = 0x10;
+    public static final int PERMISSION_READ = 0x01;
+    public static final int PERMISSION_WRITE = 0x10;
+    public static final int WRITE_TYPE_NO_RESPONSE = 0x01;
+    public static final int WRITE_TYPE_DEFAULT = 0x02;
+
+    private final UUID uuid;
+    private final int properties;
+    private final int permissions;
+    private BluetoothGattService service;
+    private int writeType = WRITE_TYPE_DEFAULT;
+    private byte[] value;
+
+    public BluetoothGattCharacteristic(UUID uuid, int properties, int permissions) {
+        this.uuid = uuid;
+        this.properties = properties;
+        this.permissions = permissions;
+    }
+
+    void setService(BluetoothGattService service) {
+        this.service = service;
+    }
+
+    public BluetoothGattService getService() {
+        return service;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public int getProperties() {
+        return properties;
+    }
+
+    public int getPermissions() {
+        return permissions;
+    }
+
+    public int getWriteType() {
+        return writeType;
+    }
+
+    public void setWriteType(int writeType) {
+        this.writeType = writeType;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public boolean setValue(byte[] value) {
+        this.value = value;
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package android.bluetooth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JVM stand-in for the Android class, only what the benchmarked code uses.
+ */
+public class BluetoothGattService {
+    public static final int SERVICE_TYPE_PRIMARY = 0;
+    public static final int SERVICE_TYPE_SECONDARY = 1;
+
+    private final UUID uuid;
+    private final int serviceType;
+    private final List<BluetoothGattCharacteristic> characteristics = new ArrayList<BluetoothGattCharacteristic>();
+    private final List<BluetoothGattService> includedServices = new ArrayList<BluetoothGattService>();
+
+    public BluetoothGattService(UUID uuid, int serviceType) {
+        this.uuid = uuid;
+        this.serviceType = serviceType;
+    }
+
+    public boolean addCharacteristic(BluetoothGattCharacteristic characteristic) {
+        characteristic.setService(this);
+        characteristics.add(characteristic);
+        return true;
+    }
+
+    public boolean addService(BluetoothGattService service) {
+        includedServices.add(service);
+        return true;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public int getType() {
+        return serviceType;
+    }
+
+    public List<BluetoothGattCharacteristic> getCharacteristics() {
+        return characteristics;
+    }
+
+    public List<BluetoothGattService> getIncludedServices() {
+        return includedServices;
+    }
+}
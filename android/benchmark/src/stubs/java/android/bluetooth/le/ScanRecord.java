@@ -0,0 +1,95 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package android.bluetooth.le;
+
+import android.os.ParcelUuid;
+import android.util.SparseArray;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the Android class, only what the benchmarked code uses.
+ * The framework parses records from the advertisement bytes, the benchmarks pass the fields.
+ */
+public final class ScanRecord {
+    private final int advertiseFlags;
+    private final List<ParcelUuid> serviceUuids;
+    private final SparseArray<byte[]> manufacturerSpecificData;
+    private final Map<ParcelUuid, byte[]> serviceData;
+    private final int txPowerLevel;
+    private final String deviceName;
+    private final byte[] bytes;
+
+    public ScanRecord(List<ParcelUuid> serviceUuids, SparseArray<byte[]> manufacturerData, Map<ParcelUuid, byte[]> serviceData,
+            int advertiseFlags, int txPowerLevel, String localName, byte[] bytes) {
+        this.serviceUuids = serviceUuids;
+        this.manufacturerSpecificData = manufacturerData;
+        this.serviceData = serviceData;
+        this.advertiseFlags = advertiseFlags;
+        this.txPowerLevel = txPowerLevel;
+        this.deviceName = localName;
+        this.bytes = bytes;
+    }
+
+    public int getAdvertiseFlags() {
+        return advertiseFlags;
+    }
+
+    public List<ParcelUuid> getServiceUuids() {
+        return serviceUuids;
+    }
+
+    public SparseArray<byte[]> getManufacturerSpecificData() {
+        return manufacturerSpecificData;
+    }
+
+    public byte[] getManufacturerSpecificData(int manufacturerId) {
+        return manufacturerSpecificData != null ? manufacturerSpecificData.get(manufacturerId) : null;
+    }
+
+    public Map<ParcelUuid, byte[]> getServiceData() {
+        return serviceData;
+    }
+
+    public byte[] getServiceData(ParcelUuid serviceDataUuid) {
+        return serviceData != null ? serviceData.get(serviceDataUuid) : null;
+    }
+
+    public int getTxPowerLevel() {
+        return txPowerLevel;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package android.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stand-in for the Android class, only what the benchmarked code uses.
+ */
+public class SparseArray<E> {
+    private final List<Integer> keys = new ArrayList<Integer>();
+    private final List<E> values = new ArrayList<E>();
+
+    public void put(int key, E value) {
+        int index = keys.indexOf(key);
+        if(index >= 0) {
+            values.set(index, value);
+        } else {
+            keys.add(key);
+            values.add(value);
+        }
+    }
+
+    public E get(int key) {
+        int index = keys.indexOf(key);
+        return index >= 0 ? values.get(index) : null;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public int keyAt(int index) {
+        return keys.get(index);
+    }
+
+    public E valueAt(int index) {
+        return values.get(index);
+    }
+}
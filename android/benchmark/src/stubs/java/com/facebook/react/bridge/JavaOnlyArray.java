@@ -0,0 +1,138 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stand-in for the React Native bridge type, only what the benchmarked code uses.
+ * Like the real class it keeps the values in an ArrayList.
+ */
+public class JavaOnlyArray implements WritableArray {
+    private final List<Object> backingList = new ArrayList<Object>();
+
+    public static JavaOnlyArray of(Object... values) {
+        JavaOnlyArray array = new JavaOnlyArray();
+        for(Object value : values) {
+            array.backingList.add(value instanceof Integer ? ((Integer) value).doubleValue() : value);
+        }
+        return array;
+    }
+
+    @Override
+    public int size() {
+        return backingList.size();
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return backingList.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return (Boolean) backingList.get(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) backingList.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) backingList.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) backingList.get(index);
+    }
+
+    @Override
+    public ReadableArray getArray(int index) {
+        return (ReadableArray) backingList.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(int index) {
+        return (ReadableMap) backingList.get(index);
+    }
+
+    @Override
+    public ReadableType getType(int index) {
+        Object value = backingList.get(index);
+        if(value == null) {return ReadableType.Null;}
+        if(value instanceof Boolean) {return ReadableType.Boolean;}
+        if(value instanceof Number) {return ReadableType.Number;}
+        if(value instanceof String) {return ReadableType.String;}
+        if(value instanceof ReadableMap) {return ReadableType.Map;}
+        return ReadableType.Array;
+    }
+
+    @Override
+    public void pushNull() {
+        backingList.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushInt(int value) {
+        backingList.add((double) value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushArray(WritableArray array) {
+        backingList.add(array);
+    }
+
+    @Override
+    public void pushMap(WritableMap map) {
+        backingList.add(map);
+    }
+
+    @Override
+    public String toString() {
+        return backingList.toString();
+    }
+}
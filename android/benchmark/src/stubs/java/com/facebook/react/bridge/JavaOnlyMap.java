@@ -0,0 +1,139 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the React Native bridge type, only what the benchmarked code uses.
+ * Like the real class it keeps the values in a HashMap.
+ */
+public class JavaOnlyMap implements WritableMap {
+    private final Map<String, Object> backingMap = new HashMap<String, Object>();
+
+    public static JavaOnlyMap of(Object... keysAndValues) {
+        JavaOnlyMap map = new JavaOnlyMap();
+        for(int i = 0; i < keysAndValues.length; i += 2) {
+            Object value = keysAndValues[i + 1];
+            map.backingMap.put((String) keysAndValues[i], value instanceof Integer ? ((Integer) value).doubleValue() : value);
+        }
+        return map;
+    }
+
+    @Override
+    public boolean hasKey(String name) {
+        return backingMap.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return backingMap.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) backingMap.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return ((Number) backingMap.get(name)).doubleValue();
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Number) backingMap.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableArray getArray(String name) {
+        return (ReadableArray) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableMap getMap(String name) {
+        return (ReadableMap) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableType getType(String name) {
+        Object value = backingMap.get(name);
+        if(value == null) {return ReadableType.Null;}
+        if(value instanceof Boolean) {return ReadableType.Boolean;}
+        if(value instanceof Number) {return ReadableType.Number;}
+        if(value instanceof String) {return ReadableType.String;}
+        if(value instanceof ReadableMap) {return ReadableType.Map;}
+        return ReadableType.Array;
+    }
+
+    @Override
+    public void putNull(String key) {
+        backingMap.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        backingMap.put(key, (double) value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, WritableArray value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, WritableMap value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public String toString() {
+        return backingMap.toString();
+    }
+}
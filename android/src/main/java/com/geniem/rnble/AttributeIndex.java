@@ -0,0 +1,73 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Discovered attribute tree of a connection, indexed by service and characteristic uuid.
+ * Built once in onServicesDiscovered so every read, write and notify is a hash lookup.
+ */
+class AttributeIndex {
+    final List<BluetoothGattService> services;
+    private final Map<UUID, BluetoothGattService> servicesByUuid = new HashMap<UUID, BluetoothGattService>();
+    private final Map<UUID, Map<UUID, BluetoothGattCharacteristic>> characteristicsByService = new HashMap<UUID, Map<UUID, BluetoothGattCharacteristic>>();
+
+    AttributeIndex(List<BluetoothGattService> services) {
+        this.services = services;
+        for(BluetoothGattService service : services) {
+            // the first instance of a service or characteristic uuid wins
+            if(servicesByUuid.containsKey(service.getUuid())) {continue;}
+            servicesByUuid.put(service.getUuid(), service);
+
+            List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
+            Map<UUID, BluetoothGattCharacteristic> byUuid = new HashMap<UUID, BluetoothGattCharacteristic>(characteristics.size() * 2);
+            for(BluetoothGattCharacteristic characteristic : characteristics) {
+                if(!byUuid.containsKey(characteristic.getUuid())) {
+                    byUuid.put(characteristic.getUuid(), characteristic);
+                }
+            }
+            characteristicsByService.put(service.getUuid(), byUuid);
+        }
+    }
+
+    BluetoothGattService getService(UUID serviceUuid) {
+        return servicesByUuid.get(serviceUuid);
+    }
+
+    BluetoothGattCharacteristic getCharacteristic(UUID serviceUuid, UUID characteristicUuid) {
+        Map<UUID, BluetoothGattCharacteristic> characteristics = characteristicsByService.get(serviceUuid);
+        return characteristics != null ? characteristics.get(characteristicUuid) : null;
+    }
+}
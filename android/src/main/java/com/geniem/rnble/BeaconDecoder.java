@@ -0,0 +1,216 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.le.ScanRecord;
+import android.os.ParcelUuid;
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.UUID;
+
+/**
+ * Decodes Eddystone (UID, URL, TLM, EID) and iBeacon advertisements into the beacon fields,
+ * so JS doesn't have to parse the raw service and manufacturer data of every beacon.
+ * <p/>
+ * Identifiers are sent as lowercase hex, the iBeacon proximity uuid in noble format.
+ */
+final class BeaconDecoder {
+    static final ParcelUuid EDDYSTONE_SERVICE_UUID = ParcelUuid.fromString("0000feaa-0000-1000-8000-00805f9b34fb");
+    static final int APPLE_COMPANY_ID = 0x004c;
+
+    private static final int EDDYSTONE_UID = 0x00;
+    private static final int EDDYSTONE_URL = 0x10;
+    private static final int EDDYSTONE_TLM = 0x20;
+    private static final int EDDYSTONE_EID = 0x30;
+
+    private static final int IBEACON_TYPE = 0x02;
+    private static final int IBEACON_LENGTH = 0x15;
+
+    // free space loss between 0 m and 1 m in dB
+    private static final int PATH_LOSS_AT_1M = 41;
+
+    // TLM temperature value of beacons without a sensor
+    private static final int TEMPERATURE_UNSUPPORTED = 0x8000;
+
+    private static final String[] URL_SCHEMES = {"http://www.", "https://www.", "http://", "https://"};
+    private static final String[] URL_EXPANSIONS = {
+        ".com/", ".org/", ".edu/", ".net/", ".info/", ".biz/", ".gov/",
+        ".com", ".org", ".edu", ".net", ".info", ".biz", ".gov"
+    };
+
+    private BeaconDecoder() {}
+
+    /**
+     * @return the beacon fields, with the frame type in "type", or null if the record isn't a known beacon frame
+     */
+    static WritableMap decode(ScanRecord record) {
+        byte[] eddystone = record.getServiceData(EDDYSTONE_SERVICE_UUID);
+        if(eddystone != null) {
+            return decodeEddystone(eddystone);
+        }
+        SparseArray<byte[]> manufacturerData = record.getManufacturerSpecificData();
+        byte[] apple = manufacturerData != null ? manufacturerData.get(APPLE_COMPANY_ID) : null;
+        if(apple != null) {
+            return decodeIBeacon(apple);
+        }
+        return null;
+    }
+
+    /**
+     * @return the RSSI at 1 m the beacon advertises, or Integer.MIN_VALUE if the record doesn't carry it
+     */
+    static int measuredPower(ScanRecord record) {
+        byte[] eddystone = record.getServiceData(EDDYSTONE_SERVICE_UUID);
+        if(eddystone != null && eddystone.length >= 2) {
+            int frameType = eddystone[0] & 0xf0;
+            if(frameType == EDDYSTONE_UID || frameType == EDDYSTONE_URL || frameType == EDDYSTONE_EID) {
+                // Eddystone advertises the power at 0 m
+                return eddystone[1] - PATH_LOSS_AT_1M;
+            }
+        }
+        SparseArray<byte[]> manufacturerData = record.getManufacturerSpecificData();
+        byte[] apple = manufacturerData != null ? manufacturerData.get(APPLE_COMPANY_ID) : null;
+        if(apple != null && apple.length >= 23 && apple[0] == IBEACON_TYPE && apple[1] == IBEACON_LENGTH) {
+            return apple[22];
+        }
+        int txPowerLevel = record.getTxPowerLevel();
+        return txPowerLevel != Integer.MIN_VALUE ? txPowerLevel - PATH_LOSS_AT_1M : Integer.MIN_VALUE;
+    }
+
+    static WritableMap decodeEddystone(byte[] data) {
+        WritableMap beacon = Arguments.createMap();
+        return decodeEddystone(data, beacon) ? beacon : null;
+    }
+
+    /**
+     * Puts the fields of an Eddystone frame into the beacon map.
+     * @return false if the data isn't a known Eddystone frame
+     */
+    static boolean decodeEddystone(byte[] data, WritableMap beacon) {
+        if(data.length < 2) {return false;}
+        switch(data[0] & 0xf0) {
+            case EDDYSTONE_UID:
+                if(data.length < 18) {return false;}
+                beacon.putString("type", "eddystoneUid");
+                beacon.putInt("txPower", data[1]);
+                beacon.putString("namespace", RnbleHex.toHex(data, 2, 10));
+                beacon.putString("instance", RnbleHex.toHex(data, 12, 6));
+                return true;
+            case EDDYSTONE_URL:
+                if(data.length < 3 || (data[2] & 0xff) >= URL_SCHEMES.length) {return false;}
+                beacon.putString("type", "eddystoneUrl");
+                beacon.putInt("txPower", data[1]);
+                beacon.putString("url", decodeUrl(data));
+                return true;
+            case EDDYSTONE_TLM:
+                return decodeTlm(data, beacon);
+            case EDDYSTONE_EID:
+                if(data.length < 10) {return false;}
+                beacon.putString("type", "eddystoneEid");
+                beacon.putInt("txPower", data[1]);
+                beacon.putString("eid", RnbleHex.toHex(data, 2, 8));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean decodeTlm(byte[] data, WritableMap beacon) {
+        int version = data[1] & 0xff;
+        if(version == 0 && data.length < 14) {return false;}
+        beacon.putString("type", "eddystoneTlm");
+        beacon.putInt("version", version);
+        if(version != 0) {
+            // encrypted TLM, only the owner of the beacon key can read it
+            beacon.putString("etlm", RnbleHex.toHex(data, 2, data.length - 2));
+            return true;
+        }
+        beacon.putInt("batteryVoltage", readUint16(data, 2));
+        int temperature = readUint16(data, 4);
+        if(temperature == TEMPERATURE_UNSUPPORTED) {
+            beacon.putNull("temperature");
+        } else {
+            // signed 8.8 fixed point degrees Celsius
+            beacon.putDouble("temperature", (short) temperature / 256.0);
+        }
+        beacon.putDouble("advertisementCount", readUint32(data, 6));
+        // counted in 0.1 s since the beacon was powered up
+        beacon.putDouble("uptime", readUint32(data, 10) / 10.0);
+        return true;
+    }
+
+    static WritableMap decodeIBeacon(byte[] data) {
+        WritableMap beacon = Arguments.createMap();
+        return decodeIBeacon(data, beacon) ? beacon : null;
+    }
+
+    /**
+     * Puts the fields of an iBeacon advertisement into the beacon map.
+     * @return false if the Apple manufacturer data isn't an iBeacon advertisement
+     */
+    static boolean decodeIBeacon(byte[] data, WritableMap beacon) {
+        if(data.length < 23 || data[0] != IBEACON_TYPE || data[1] != IBEACON_LENGTH) {return false;}
+        long msb = 0;
+        long lsb = 0;
+        for(int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (data[2 + i] & 0xff);
+            lsb = (lsb << 8) | (data[10 + i] & 0xff);
+        }
+        beacon.putString("type", "iBeacon");
+        beacon.putString("uuid", RnbleUuids.toNoble(new UUID(msb, lsb)));
+        beacon.putInt("major", readUint16(data, 18));
+        beacon.putInt("minor", readUint16(data, 20));
+        // RSSI at 1 m
+        beacon.putInt("measuredPower", data[22]);
+        return true;
+    }
+
+    private static String decodeUrl(byte[] data) {
+        StringBuilder url = new StringBuilder(URL_SCHEMES[data[2]]);
+        for(int i = 3; i < data.length; i++) {
+            int c = data[i] & 0xff;
+            if(c < URL_EXPANSIONS.length) {
+                url.append(URL_EXPANSIONS[c]);
+            } else if(c > 0x20 && c < 0x7f) {
+                url.append((char) c);
+            }
+        }
+        return url.toString();
+    }
+
+    private static int readUint16(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static long readUint32(byte[] data, int offset) {
+        return ((long) readUint16(data, offset) << 16) | readUint16(data, offset + 2);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGatt;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Android specific options of connect.
+ */
+class ConnectOptions {
+    static final int MAX_MTU = 517;
+
+    // ATT MTU requested after service discovery, 0 keeps the default of 23
+    final int mtu;
+    // BluetoothGatt.CONNECTION_PRIORITY_* or -1 to leave the priority alone
+    final int connectionPriority;
+    // keep the attribute tree in the GattCache, cacheKey separates e.g. firmware versions
+    final boolean cacheAttributes;
+    final String cacheKey;
+    // reconnect after the link dropped, with exponential backoff between the attempts
+    final boolean reconnect;
+    // reconnect in the background with BluetoothGatt.connect() instead of new direct connections
+    final boolean autoConnect;
+    // 0 retries until disconnect() is called
+    final int maxReconnectAttempts;
+    final long reconnectDelay;
+    final long maxReconnectDelay;
+    // send the whole attribute tree with ble.connect
+    final boolean discoverAll;
+
+    ConnectOptions(ReadableMap options) {
+        mtu = Math.min((int) RnbleOptions.getDouble(options, "mtu", 0), MAX_MTU);
+        connectionPriority = parseConnectionPriority(RnbleOptions.getString(options, "connectionPriority", null));
+        cacheAttributes = RnbleOptions.getBoolean(options, "cacheAttributes", false);
+        cacheKey = RnbleOptions.getString(options, "cacheKey", null);
+        reconnect = RnbleOptions.getBoolean(options, "reconnect", false);
+        autoConnect = RnbleOptions.getBoolean(options, "autoConnect", false);
+        maxReconnectAttempts = (int) RnbleOptions.getDouble(options, "maxReconnectAttempts", 5);
+        reconnectDelay = (long) RnbleOptions.getDouble(options, "reconnectDelay", 1000);
+        maxReconnectDelay = (long) RnbleOptions.getDouble(options, "maxReconnectDelay", 30000);
+        discoverAll = RnbleOptions.getBoolean(options, "discoverAll", false);
+    }
+
+    /**
+     * @return the delay before the given reconnect attempt, starting from 0
+     */
+    long reconnectDelay(int attempt) {
+        long delay = reconnectDelay << Math.min(attempt, 16);
+        return Math.min(delay, maxReconnectDelay);
+    }
+
+    static int parseConnectionPriority(String priority) {
+        if("high".equals(priority)) {
+            return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+        } else if("balanced".equals(priority)) {
+            return BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        } else if("lowPower".equals(priority)) {
+            return BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.le.ScanRecord;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Devices seen while scanning, with RSSI statistics and a hash of their last advertisement.
+ * The registry decides whether an advertisement is worth a ble.discover event when the scan
+ * reports changes only, and answers getDevices snapshots. The least recently seen devices are
+ * dropped when the registry is full.
+ * Only used on the module's Bluetooth thread.
+ */
+class DeviceRegistry {
+    static final long DEFAULT_STALE_TIMEOUT_MS = 10000;
+
+    static class Device {
+        final String address;
+        String name;
+        ScanRecord record;
+        int advertisementHash;
+        long firstSeen;
+        long lastSeen;
+        int seenCount;
+        int rssi;
+        int rssiMin;
+        int rssiMax;
+        long rssiSum;
+
+        Device(String address) {
+            this.address = address;
+        }
+
+        double rssiMean() {
+            return seenCount > 0 ? (double) rssiSum / seenCount : rssi;
+        }
+    }
+
+    private int capacity;
+    private long staleTimeoutMs = DEFAULT_STALE_TIMEOUT_MS;
+    // access ordered, the eldest entry is the device seen least recently
+    private final LinkedHashMap<String, Device> devices = new LinkedHashMap<String, Device>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Device> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    DeviceRegistry(int capacity) {
+        this.capacity = Math.max(capacity, 16);
+    }
+
+    void configure(int capacity, long staleTimeoutMs) {
+        this.capacity = Math.max(capacity, 16);
+        this.staleTimeoutMs = staleTimeoutMs;
+        // shrink right away instead of on the next new device
+        while(devices.size() > this.capacity) {
+            devices.remove(devices.keySet().iterator().next());
+        }
+    }
+
+    long getStaleTimeout() {
+        return staleTimeoutMs;
+    }
+
+    /**
+     * Records an advertisement.
+     * @return true if the device is new, its advertisement content changed or it reappeared after
+     * not being seen for the stale timeout
+     */
+    boolean update(String address, int rssi, ScanRecord record, long nowMs) {
+        int hash = record != null ? Arrays.hashCode(record.getBytes()) : 0;
+        Device device = devices.get(address);
+        boolean report;
+        if(device == null) {
+            device = new Device(address);
+            device.firstSeen = nowMs;
+            device.rssiMin = rssi;
+            device.rssiMax = rssi;
+            devices.put(address, device);
+            report = true;
+        } else {
+            report = device.advertisementHash != hash || nowMs - device.lastSeen >= staleTimeoutMs;
+            device.rssiMin = Math.min(device.rssiMin, rssi);
+            device.rssiMax = Math.max(device.rssiMax, rssi);
+        }
+        device.advertisementHash = hash;
+        device.lastSeen = nowMs;
+        device.seenCount++;
+        device.rssi = rssi;
+        device.rssiSum += rssi;
+        if(record != null) {
+            device.record = record;
+            if(record.getDeviceName() != null) {device.name = record.getDeviceName();}
+        }
+        return report;
+    }
+
+    Collection<Device> getDevices() {
+        return devices.values();
+    }
+
+    int size() {
+        return devices.size();
+    }
+
+    void clear() {
+        devices.clear();
+    }
+}
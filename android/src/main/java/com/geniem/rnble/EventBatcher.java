@@ -0,0 +1,92 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.os.Handler;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Collects event payloads and hands them over as one array, either when the batch is full or
+ * when the flush interval has passed since the first payload of the batch was added.
+ */
+class EventBatcher {
+    interface Sink {
+        void sendBatch(WritableArray items);
+    }
+
+    private final Handler handler;
+    private final long intervalMs;
+    private final int maxSize;
+    private final Sink sink;
+    private WritableArray items;
+    private int size;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    EventBatcher(Handler handler, long intervalMs, int maxSize, Sink sink) {
+        this.handler = handler;
+        this.intervalMs = intervalMs;
+        this.maxSize = Math.max(maxSize, 1);
+        this.sink = sink;
+    }
+
+    void add(WritableMap item) {
+        if(items == null) {
+            items = Arguments.createArray();
+            handler.postDelayed(flushRunnable, intervalMs);
+        }
+        items.pushMap(item);
+        size++;
+        if(size >= maxSize) {flush();}
+    }
+
+    void flush() {
+        handler.removeCallbacks(flushRunnable);
+        WritableArray batch = items;
+        items = null;
+        size = 0;
+        if(batch != null) {sink.sendBatch(batch);}
+    }
+
+    /**
+     * Drops the pending batch without sending it.
+     */
+    void cancel() {
+        handler.removeCallbacks(flushRunnable);
+        items = null;
+        size = 0;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds back the events of a background period so they can be delivered when the React context
+ * resumes. In summary mode only the latest event per event name, peripheral and attribute is kept,
+ * events listing several devices are kept as they are. Otherwise the events are kept in order and
+ * the oldest ones are dropped when the buffer is full.
+ * Only used on the module's Bluetooth thread.
+ */
+class EventReplayBuffer {
+    interface Sink {
+        void replay(String eventName, WritableMap params);
+    }
+
+    private static class Event {
+        final String name;
+        final WritableMap params;
+
+        Event(String name, WritableMap params) {
+            this.name = name;
+            this.params = params;
+        }
+    }
+
+    private final boolean summary;
+    private final int capacity;
+    private final long startedAt = SystemClock.elapsedRealtime();
+    private final ArrayDeque<Event> events = new ArrayDeque<Event>();
+    private final LinkedHashMap<String, Event> latest = new LinkedHashMap<String, Event>();
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+    private int dropped;
+    // distinguishes the events that are never summarized
+    private int sequence;
+
+    EventReplayBuffer(boolean summary, int capacity) {
+        this.summary = summary;
+        this.capacity = capacity;
+    }
+
+    void add(String eventName, WritableMap params) {
+        Integer count = counts.get(eventName);
+        counts.put(eventName, count != null ? count + 1 : 1);
+
+        Event event = new Event(eventName, params);
+        if(summary) {
+            String key = key(eventName, params);
+            // re-insert so the replay order follows the latest update
+            if(latest.remove(key) == null && latest.size() >= capacity) {
+                latest.remove(latest.keySet().iterator().next());
+                dropped++;
+            }
+            latest.put(key, event);
+        } else {
+            if(events.size() >= capacity) {
+                events.pollFirst();
+                dropped++;
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Sends the buffered events followed by a ble.backgroundSummary event.
+     */
+    void replay(Sink sink) {
+        List<Event> replayed = new ArrayList<Event>(summary ? latest.values() : events);
+        events.clear();
+        latest.clear();
+        for(Event event : replayed) {
+            sink.replay(event.name, event.params);
+        }
+
+        WritableMap eventCounts = Arguments.createMap();
+        for(Map.Entry<String, Integer> entry : counts.entrySet()) {
+            eventCounts.putInt(entry.getKey(), entry.getValue());
+        }
+        WritableMap params = Arguments.createMap();
+        params.putDouble("duration", SystemClock.elapsedRealtime() - startedAt);
+        params.putMap("counts", eventCounts);
+        params.putInt("replayed", replayed.size());
+        params.putInt("dropped", dropped);
+        params.putBoolean("summary", summary);
+        sink.replay("ble.backgroundSummary", params);
+    }
+
+    private String key(String eventName, WritableMap params) {
+        StringBuilder key = new StringBuilder(eventName);
+        if(eventName.equals("ble.discoverBatch")) {
+            // every event carries different devices
+            return key.append('#').append(sequence++).toString();
+        }
+        // ble.discover identifies the device by id
+        appendKey(key, params, "id");
+        appendKey(key, params, "peripheralUuid");
+        appendKey(key, params, "serviceUuid");
+        appendKey(key, params, "characteristicUuid");
+        appendKey(key, params, "descriptorUuid");
+        return key.toString();
+    }
+
+    private static void appendKey(StringBuilder key, WritableMap params, String name) {
+        if(params.hasKey(name) && !params.isNull(name)) {
+            key.append('/').append(params.getString(name));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores the discovered attribute trees of peripherals in the shared preferences of the app so
+ * that discovery can be answered right away when the peripheral is connected again.
+ * The trees are kept as JSON, one entry per peripheral address and optional cache key
+ * (e.g. the firmware version of the peripheral).
+ */
+class GattCache {
+    private static final String TAG = "GattCache";
+    private static final String PREFERENCES = "com.geniem.rnble.GattCache";
+
+    private final SharedPreferences preferences;
+
+    GattCache(Context context) {
+        this.preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    static String key(String address, String cacheKey) {
+        return cacheKey != null ? address + "|" + cacheKey : address;
+    }
+
+    /**
+     * @return the serialized tree stored for the key or null
+     */
+    String get(String key) {
+        return preferences.getString(key, null);
+    }
+
+    void put(String key, String tree) {
+        preferences.edit().putString(key, tree).apply();
+    }
+
+    void remove(String key) {
+        preferences.edit().remove(key).apply();
+    }
+
+    /**
+     * Removes the trees of a peripheral stored under any cache key, or all trees if address is null.
+     */
+    void clear(String address) {
+        SharedPreferences.Editor editor = preferences.edit();
+        if(address == null) {
+            editor.clear();
+        } else {
+            for(String key : preferences.getAll().keySet()) {
+                if(key.equals(address) || key.startsWith(address + "|")) {
+                    editor.remove(key);
+                }
+            }
+        }
+        editor.apply();
+    }
+
+    static String serialize(List<BluetoothGattService> services) {
+        try {
+            JSONArray tree = new JSONArray();
+            for(BluetoothGattService service : services) {
+                JSONArray characteristics = new JSONArray();
+                for(BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                    JSONArray descriptors = new JSONArray();
+                    for(BluetoothGattDescriptor descriptor : characteristic.getDescriptors()) {
+                        descriptors.put(descriptor.getUuid().toString());
+                    }
+                    characteristics.put(new JSONObject()
+                            .put("uuid", characteristic.getUuid().toString())
+                            .put("properties", characteristic.getProperties())
+                            .put("descriptors", descriptors));
+                }
+                JSONArray included = new JSONArray();
+                for(BluetoothGattService includedService : service.getIncludedServices()) {
+                    included.put(includedService.getUuid().toString());
+                }
+                tree.put(new JSONObject()
+                        .put("uuid", service.getUuid().toString())
+                        .put("type", service.getType())
+                        .put("included", included)
+                        .put("characteristics", characteristics));
+            }
+            return tree.toString();
+        } catch (JSONException e) {
+            // not thrown for strings and numbers
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Rebuilds a serialized tree. The attributes can be used to answer discovery, they are not
+     * bound to a GATT client so reads and writes need the live attributes.
+     * @return the services or null if the tree can't be parsed
+     */
+    static List<BluetoothGattService> deserialize(String serialized) {
+        try {
+            JSONArray tree = new JSONArray(serialized);
+            List<BluetoothGattService> services = new ArrayList<BluetoothGattService>(tree.length());
+            for(int i = 0; i < tree.length(); i++) {
+                JSONObject serviceObject = tree.getJSONObject(i);
+                BluetoothGattService service = new BluetoothGattService(UUID.fromString(serviceObject.getString("uuid")), serviceObject.getInt("type"));
+                JSONArray characteristics = serviceObject.getJSONArray("characteristics");
+                for(int j = 0; j < characteristics.length(); j++) {
+                    JSONObject characteristicObject = characteristics.getJSONObject(j);
+                    BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(
+                            UUID.fromString(characteristicObject.getString("uuid")), characteristicObject.getInt("properties"), 0);
+                    JSONArray descriptors = characteristicObject.getJSONArray("descriptors");
+                    for(int k = 0; k < descriptors.length(); k++) {
+                        characteristic.addDescriptor(new BluetoothGattDescriptor(UUID.fromString(descriptors.getString(k)), 0));
+                    }
+                    service.addCharacteristic(characteristic);
+                }
+                services.add(service);
+            }
+            // included services refer to services of the same tree, trees stored before they were cached have none
+            for(int i = 0; i < tree.length(); i++) {
+                JSONArray included = tree.getJSONObject(i).optJSONArray("included");
+                for(int j = 0; included != null && j < included.length(); j++) {
+                    BluetoothGattService includedService = findService(services, UUID.fromString(included.getString(j)));
+                    if(includedService != null) {services.get(i).addService(includedService);}
+                }
+            }
+            return services;
+        } catch (JSONException e) {
+            Log.w(TAG, "Invalid attribute cache entry", e);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Invalid attribute cache entry", e);
+        }
+        return null;
+    }
+
+    private static BluetoothGattService findService(List<BluetoothGattService> services, UUID uuid) {
+        for(BluetoothGattService service : services) {
+            if(service.getUuid().equals(uuid)) {return service;}
+        }
+        return null;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+/**
+ * A single GATT request waiting in a {@link GattOperationQueue}. Android allows only one
+ * outstanding GATT operation per connection, so requests are queued and started one by one.
+ */
+class GattOperation {
+    static final int READ_CHARACTERISTIC = 0;
+    static final int WRITE_CHARACTERISTIC = 1;
+    static final int WRITE_DESCRIPTOR = 2;
+    static final int REQUEST_MTU = 3;
+    static final int EXECUTE_RELIABLE_WRITE = 4;
+
+    static final int ERROR_QUEUE_FULL = -3;
+    static final int ERROR_NOT_STARTED = -4;
+    static final int ERROR_TIMEOUT = -5;
+    static final int ERROR_DISCONNECTED = -6;
+    static final int ERROR_ABORTED = -7;
+    static final int ERROR_NOT_FOUND = -8;
+    static final int ERROR_NOT_CONNECTED = -9;
+
+    final int type;
+    final BluetoothGattCharacteristic characteristic;
+    final BluetoothGattDescriptor descriptor;
+    final byte[] value;
+    final int writeType;
+    final int mtu;
+    // System.nanoTime() when the operation was requested
+    final long createdAt = System.nanoTime();
+
+    // notification state requested by notify(), carried over to the ble.notify event
+    boolean notifyState;
+    // set on writes the module makes on its own, e.g. enabling the Service Changed indication, their result isn't reported
+    boolean internal;
+    // set on the chunks of a writeStream() payload
+    WriteStream stream;
+    // set on the writes of a writeBatch() call
+    WriteBatch batch;
+    // set on the reads of a readMany() call
+    ReadBatch readBatch;
+    int batchIndex;
+    // set by the promise variants, the request is settled instead of sending an event
+    GattRequest request;
+    int attempts;
+
+    private GattOperation(int type, BluetoothGattCharacteristic characteristic, BluetoothGattDescriptor descriptor, byte[] value, int writeType, int mtu) {
+        this.type = type;
+        this.characteristic = characteristic;
+        this.descriptor = descriptor;
+        this.value = value;
+        this.writeType = writeType;
+        this.mtu = mtu;
+    }
+
+    static GattOperation read(BluetoothGattCharacteristic characteristic) {
+        return new GattOperation(READ_CHARACTERISTIC, characteristic, null, null, 0, 0);
+    }
+
+    static GattOperation write(BluetoothGattCharacteristic characteristic, byte[] value, int writeType) {
+        return new GattOperation(WRITE_CHARACTERISTIC, characteristic, null, value, writeType, 0);
+    }
+
+    static GattOperation writeDescriptor(BluetoothGattDescriptor descriptor, byte[] value) {
+        return new GattOperation(WRITE_DESCRIPTOR, descriptor.getCharacteristic(), descriptor, value, 0, 0);
+    }
+
+    static GattOperation requestMtu(int mtu) {
+        return new GattOperation(REQUEST_MTU, null, null, null, 0, mtu);
+    }
+
+    static GattOperation executeReliableWrite() {
+        return new GattOperation(EXECUTE_RELIABLE_WRITE, null, null, null, 0, 0);
+    }
+
+    /**
+     * @return true if the operation should be dropped from the queue without being started
+     */
+    boolean isCancelled() {
+        // nobody waits for the result of a timed out request anymore
+        if(request != null && request.isSettled()) {return true;}
+        if(batch == null) {return false;}
+        return batch.finished || (type == EXECUTE_RELIABLE_WRITE && !batch.reliable);
+    }
+
+    /**
+     * Starts the operation. The value is applied to the shared characteristic or descriptor object
+     * only now, so queued writes to the same attribute don't overwrite each other.
+     * @return false if the stack refused to start the operation (usually because it is busy)
+     */
+    boolean execute(BluetoothGatt gatt) {
+        switch (type) {
+            case READ_CHARACTERISTIC:
+                return gatt.readCharacteristic(characteristic);
+            case WRITE_CHARACTERISTIC:
+                if(batch != null && batch.reliable && !batch.begun) {
+                    // fall back to plain writes if the transaction can't be started
+                    batch.begun = true;
+                    batch.reliable = gatt.beginReliableWrite();
+                }
+                characteristic.setWriteType(writeType);
+                characteristic.setValue(value);
+                return gatt.writeCharacteristic(characteristic);
+            case WRITE_DESCRIPTOR:
+                descriptor.setValue(value);
+                return gatt.writeDescriptor(descriptor);
+            case REQUEST_MTU:
+                return gatt.requestMtu(mtu);
+            case EXECUTE_RELIABLE_WRITE:
+                return gatt.executeReliableWrite();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if a GATT callback of the given type for the given attribute completes this operation
+     */
+    boolean matches(int callbackType, Object attribute) {
+        if(type != callbackType) {return false;}
+        switch (type) {
+            case WRITE_DESCRIPTOR:
+                return descriptor == attribute;
+            case REQUEST_MTU:
+            case EXECUTE_RELIABLE_WRITE:
+                return true;
+            default:
+                return characteristic == attribute;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GattOperation{type=" + type + ", characteristic=" + (characteristic != null ? characteristic.getUuid() : null) + "}";
+    }
+}
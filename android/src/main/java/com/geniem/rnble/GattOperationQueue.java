@@ -0,0 +1,245 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Serializes the GATT operations of one connection. The next operation is started when the
+ * GATT callback of the previous one arrives. Operations that the stack refuses because it is
+ * busy are retried, operations without a callback time out, and the queue depth is bounded.
+ * After a timeout the queue waits for the late callback of the timed out operation, callbacks
+ * carry no request id and the late one would otherwise complete the next operation on the
+ * same attribute.
+ * All methods must be called on the thread of the handler passed to the constructor.
+ */
+class GattOperationQueue {
+    private static final String TAG = "GattOperationQueue";
+
+    static final long DEFAULT_TIMEOUT_MS = 5000;
+    static final int DEFAULT_MAX_RETRIES = 3;
+    static final long DEFAULT_RETRY_DELAY_MS = 20;
+    static final int DEFAULT_MAX_DEPTH = 256;
+
+    interface Listener {
+        void onOperationFailed(GattOperation operation, int errorCode, String errorMessage);
+    }
+
+    private final ArrayDeque<GattOperation> pending = new ArrayDeque<GattOperation>();
+    private final Handler handler;
+    private final Listener listener;
+    private BluetoothGatt gatt;
+    private GattOperation current;
+    // timed out operation whose callback may still arrive, nothing is started until it does
+    private GattOperation timedOut;
+
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryDelayMs = DEFAULT_RETRY_DELAY_MS;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onTimeout();
+        }
+    };
+
+    private final Runnable retryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            start();
+        }
+    };
+
+    private final Runnable holdRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // the stack dropped the operation, nothing can be confused with it anymore
+            Log.w(TAG, "No late callback for " + timedOut);
+            timedOut = null;
+            next();
+        }
+    };
+
+    GattOperationQueue(Handler handler, Listener listener) {
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    void setGatt(BluetoothGatt gatt) {
+        this.gatt = gatt;
+        // a new link won't deliver callbacks of the old one
+        release();
+        next();
+    }
+
+    void configure(long timeoutMs, int maxRetries, long retryDelayMs, int maxDepth) {
+        this.timeoutMs = timeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryDelayMs = retryDelayMs;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Adds an operation to the queue and starts it right away if the link is idle.
+     * @return false if the queue is full, the operation is then reported as failed
+     */
+    boolean enqueue(GattOperation operation) {
+        if(pending.size() < maxDepth) {
+            pending.add(operation);
+            next();
+            return true;
+        }
+        listener.onOperationFailed(operation, GattOperation.ERROR_QUEUE_FULL, "GATT operation queue is full.");
+        return false;
+    }
+
+    /**
+     * Puts an operation in front of the queue, e.g. to retry a write right away.
+     */
+    void enqueueFirst(GattOperation operation) {
+        pending.addFirst(operation);
+        next();
+    }
+
+    /**
+     * Adds several operations so that nothing else is queued in between, used for reliable
+     * write transactions.
+     * @return false if the operations don't fit into the queue, they are then reported as failed
+     */
+    boolean enqueueAll(List<GattOperation> operations) {
+        if(pending.size() + operations.size() <= maxDepth) {
+            pending.addAll(operations);
+            next();
+            return true;
+        }
+        for(GattOperation operation : operations) {
+            listener.onOperationFailed(operation, GattOperation.ERROR_QUEUE_FULL, "GATT operation queue is full.");
+        }
+        return false;
+    }
+
+    /**
+     * Called from the GATT callbacks. Finishes the current operation if the callback belongs to it
+     * and starts the next queued one.
+     * @return the completed operation or null if the callback was not expected
+     */
+    GattOperation complete(int callbackType, Object attribute) {
+        if(timedOut != null && timedOut.matches(callbackType, attribute)) {
+            Log.w(TAG, "Late GATT callback of timed out operation " + timedOut);
+            release();
+            next();
+            return null;
+        }
+        if(current == null || !current.matches(callbackType, attribute)) {
+            Log.w(TAG, "Unexpected GATT callback, current operation: " + current);
+            return null;
+        }
+        GattOperation completed = current;
+        current = null;
+        handler.removeCallbacks(timeoutRunnable);
+        next();
+        return completed;
+    }
+
+    /**
+     * Drops all queued operations, used when the connection goes away.
+     */
+    void clear() {
+        handler.removeCallbacks(timeoutRunnable);
+        handler.removeCallbacks(retryRunnable);
+        release();
+        if(current != null) {pending.addFirst(current);}
+        current = null;
+        GattOperation[] dropped = pending.toArray(new GattOperation[pending.size()]);
+        pending.clear();
+        for(GattOperation operation : dropped) {
+            listener.onOperationFailed(operation, GattOperation.ERROR_DISCONNECTED, "Peripheral disconnected.");
+        }
+    }
+
+    int size() {
+        return pending.size() + (current != null ? 1 : 0);
+    }
+
+    /**
+     * Takes the next operation from the queue if no operation is in progress.
+     */
+    private void next() {
+        if(gatt == null || current != null || timedOut != null) {return;}
+        do {
+            current = pending.poll();
+        } while(current != null && current.isCancelled());
+        if(current == null) {return;}
+        current.attempts = 0;
+        start();
+    }
+
+    private void start() {
+        if(gatt == null || current == null) {return;}
+        current.attempts++;
+        if(current.execute(gatt)) {
+            handler.postDelayed(timeoutRunnable, timeoutMs);
+            return;
+        }
+        if(current.attempts <= maxRetries) {
+            // the stack is still busy with something we didn't start (e.g. service discovery)
+            handler.postDelayed(retryRunnable, retryDelayMs);
+            return;
+        }
+        GattOperation failed = current;
+        current = null;
+        Log.w(TAG, "Could not start GATT operation " + failed);
+        listener.onOperationFailed(failed, GattOperation.ERROR_NOT_STARTED, "Could not start GATT operation.");
+        next();
+    }
+
+    private void onTimeout() {
+        GattOperation failed = current;
+        current = null;
+        if(failed != null) {
+            Log.w(TAG, "GATT operation timed out " + failed);
+            // hold the queue for another timeout period
+            timedOut = failed;
+            handler.postDelayed(holdRunnable, timeoutMs);
+            listener.onOperationFailed(failed, GattOperation.ERROR_TIMEOUT, "GATT operation timed out.");
+        }
+        next();
+    }
+
+    private void release() {
+        handler.removeCallbacks(holdRunnable);
+        timedOut = null;
+    }
+}
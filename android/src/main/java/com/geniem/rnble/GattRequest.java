@@ -0,0 +1,82 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.os.Handler;
+
+import com.facebook.react.bridge.Promise;
+
+/**
+ * A request from one of the promise variants of the GATT methods. The request travels with its
+ * GattOperation, so the result reaches the caller that asked for it even if several requests
+ * for the same attribute are in flight. The promise is settled once, either by the result or by
+ * the timeout, whichever comes first. Only used on the module's Bluetooth thread.
+ */
+class GattRequest {
+    static final long DEFAULT_TIMEOUT_MS = 30000;
+
+    private final Handler handler;
+    private final Promise promise;
+    private boolean settled;
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            reject(GattOperation.ERROR_TIMEOUT, "Request timed out.");
+        }
+    };
+
+    GattRequest(Handler handler, Promise promise, long timeoutMs) {
+        this.handler = handler;
+        this.promise = promise;
+        if(timeoutMs > 0) {
+            handler.postDelayed(timeoutRunnable, timeoutMs);
+        }
+    }
+
+    boolean isSettled() {
+        return settled;
+    }
+
+    void resolve(Object value) {
+        if(settled) {return;}
+        settled = true;
+        handler.removeCallbacks(timeoutRunnable);
+        promise.resolve(value);
+    }
+
+    /**
+     * @param code GATT status or one of the GattOperation.ERROR_* codes, sent as the error code string
+     */
+    void reject(int code, String message) {
+        if(settled) {return;}
+        settled = true;
+        handler.removeCallbacks(timeoutRunnable);
+        promise.reject(Integer.toString(code), message);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * What happens to connections, scans and events while the app is in the background,
+ * set with setLifecyclePolicy.
+ */
+class LifecycleOptions {
+    // connections are closed and the scan is paused in onHostPause
+    static final int BACKGROUND_CLOSE = 0;
+    // connections and a low power scan stay alive, the process may still be killed
+    static final int BACKGROUND_KEEP = 1;
+    // like BACKGROUND_KEEP but owned by a foreground service so the process is kept
+    static final int BACKGROUND_SERVICE = 2;
+
+    // events are sent as they happen
+    static final int REPLAY_NONE = 0;
+    // events are held back and sent in order on resume
+    static final int REPLAY_ALL = 1;
+    // only the latest event per peripheral and attribute is sent on resume
+    static final int REPLAY_SUMMARY = 2;
+
+    static final int DEFAULT_MAX_BUFFERED_EVENTS = 500;
+
+    final int background;
+    final int replay;
+    final int maxBufferedEvents;
+    final String notificationTitle;
+    final String notificationText;
+
+    LifecycleOptions(ReadableMap options) {
+        background = parseBackground(RnbleOptions.getString(options, "background", "close"));
+        replay = parseReplay(RnbleOptions.getString(options, "replay", "all"));
+        maxBufferedEvents = Math.max((int) RnbleOptions.getDouble(options, "maxBufferedEvents", DEFAULT_MAX_BUFFERED_EVENTS), 1);
+        notificationTitle = RnbleOptions.getString(options, "notificationTitle", "Bluetooth");
+        notificationText = RnbleOptions.getString(options, "notificationText", "Connected to Bluetooth devices");
+    }
+
+    boolean keepsConnections() {
+        return background != BACKGROUND_CLOSE;
+    }
+
+    boolean buffersEvents() {
+        return keepsConnections() && replay != REPLAY_NONE;
+    }
+
+    static int parseBackground(String background) {
+        if("keep".equals(background)) {
+            return BACKGROUND_KEEP;
+        } else if("service".equals(background)) {
+            return BACKGROUND_SERVICE;
+        } else if("close".equals(background)) {
+            return BACKGROUND_CLOSE;
+        }
+        throw new IllegalArgumentException("Unknown background policy " + background);
+    }
+
+    static int parseReplay(String replay) {
+        if("all".equals(replay)) {
+            return REPLAY_ALL;
+        } else if("summary".equals(replay)) {
+            return REPLAY_SUMMARY;
+        } else if("none".equals(replay)) {
+            return REPLAY_NONE;
+        }
+        throw new IllegalArgumentException("Unknown replay mode " + replay);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Ring buffer for the notifications of one subscribed characteristic. Notifications are
+ * collected on the module's Bluetooth thread and handed over as one batch per flush interval. When the
+ * buffer is full the overflow policy decides which values are dropped, dropped values are counted.
+ */
+class NotificationBuffer {
+    interface Sink {
+        void sendNotifications(NotificationBuffer buffer, byte[][] values, long[] timestamps, int dropped);
+    }
+
+    static final int DROP_OLDEST = 0;
+    static final int DROP_NEWEST = 1;
+    static final int LATEST_ONLY = 2;
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    // replaced when the attributes are discovered again
+    BluetoothGattCharacteristic characteristic;
+    private final Handler handler;
+    private final long intervalMs;
+    private final int policy;
+    private final Sink sink;
+    private final byte[][] values;
+    private final long[] timestamps;
+    // index of the oldest value and the number of buffered values
+    private int head;
+    private int count;
+    private int dropped;
+    private long totalDropped;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    NotificationBuffer(BluetoothGattCharacteristic characteristic, Handler handler, long intervalMs, int capacity, int policy, Sink sink) {
+        this.characteristic = characteristic;
+        this.handler = handler;
+        this.intervalMs = intervalMs;
+        this.policy = policy;
+        this.sink = sink;
+        int size = policy == LATEST_ONLY ? 1 : Math.max(capacity, 1);
+        this.values = new byte[size][];
+        this.timestamps = new long[size];
+    }
+
+    /**
+     * Creates a buffer from the notify() options or returns null if batching was not requested.
+     * Options: batchInterval - ms between batches, bufferSize - values kept per batch,
+     * overflow - "dropOldest" (default), "dropNewest" or "latestOnly".
+     */
+    static NotificationBuffer fromOptions(ReadableMap options, BluetoothGattCharacteristic characteristic, Handler handler, Sink sink) {
+        long intervalMs = (long) RnbleOptions.getDouble(options, "batchInterval", 0);
+        if(intervalMs <= 0) {return null;}
+        int capacity = (int) RnbleOptions.getDouble(options, "bufferSize", DEFAULT_CAPACITY);
+        return new NotificationBuffer(characteristic, handler, intervalMs, capacity, parsePolicy(RnbleOptions.getString(options, "overflow", null)), sink);
+    }
+
+    static int parsePolicy(String policy) {
+        if(policy == null || policy.equals("dropOldest")) {return DROP_OLDEST;}
+        if(policy.equals("dropNewest")) {return DROP_NEWEST;}
+        if(policy.equals("latestOnly")) {return LATEST_ONLY;}
+        throw new IllegalArgumentException("Unknown overflow policy " + policy);
+    }
+
+    // the stack hands a new array to every notification, so the value is kept without copying
+    void add(byte[] value) {
+        long now = SystemClock.elapsedRealtime();
+        if(count == values.length) {
+            dropped++;
+            totalDropped++;
+            if(policy == DROP_NEWEST) {return;}
+            // overwrite the oldest value
+            head = (head + 1) % values.length;
+            count--;
+        }
+        int index = (head + count) % values.length;
+        values[index] = value;
+        timestamps[index] = now;
+        count++;
+        if(count == 1 && dropped == 0) {
+            handler.postDelayed(flushRunnable, intervalMs);
+        }
+    }
+
+    void flush() {
+        handler.removeCallbacks(flushRunnable);
+        if(count == 0 && dropped == 0) {return;}
+        int batchDropped = dropped;
+        byte[][] batch = new byte[count][];
+        long[] batchTimestamps = new long[count];
+        for(int i = 0; i < count; i++) {
+            int index = (head + i) % values.length;
+            batch[i] = values[index];
+            batchTimestamps[i] = timestamps[index];
+            values[index] = null;
+        }
+        head = 0;
+        count = 0;
+        dropped = 0;
+        sink.sendNotifications(this, batch, batchTimestamps, batchDropped);
+    }
+
+    long totalDropped() {
+        return totalDropped;
+    }
+
+    /**
+     * Drops the buffered values without sending them.
+     */
+    void cancel() {
+        handler.removeCallbacks(flushRunnable);
+        for(int i = 0; i < values.length; i++) {
+            values[i] = null;
+        }
+        head = 0;
+        count = 0;
+        dropped = 0;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Smooths the RSSI of every advertisement per device and maps it to proximity zones, so JS only
+ * hears about a device when its zone changes instead of on every advertisement.
+ * <p/>
+ * Zones are numbered from 0 (closest) by the RSSI thresholds they start at, zone thresholds.length
+ * is everything farther away than the last threshold. A zone change needs the smoothed RSSI to
+ * cross the threshold by the hysteresis, so a device at a zone border doesn't flap.
+ * Only used on the module's Bluetooth thread.
+ */
+class ProximityTracker {
+    static final int FILTER_NONE = 0;
+    static final int FILTER_EMA = 1;
+    static final int FILTER_KALMAN = 2;
+
+    // zone of devices that haven't been seen for the timeout
+    static final int ZONE_LOST = -1;
+
+    /**
+     * Smoothed state of one device, the returned instance is reused by the tracker.
+     */
+    static class Device {
+        final String address;
+        double rssi;
+        // Kalman error covariance
+        double covariance;
+        int zone;
+        int previousZone;
+        // RSSI at 1 m from the advertisement, Integer.MIN_VALUE if unknown
+        int measuredPower = Integer.MIN_VALUE;
+        long lastSeen;
+
+        Device(String address) {
+            this.address = address;
+        }
+    }
+
+    private final int filter;
+    private final double smoothing;
+    private final double processNoise;
+    private final double measurementNoise;
+    private final double[] thresholds;
+    private final double hysteresis;
+    private final long timeoutMs;
+    private final double pathLossExponent;
+    private final int maxDevices;
+    private final Map<String, Device> devices = new HashMap<String, Device>();
+
+    ProximityTracker(ScanOptions options) {
+        this.filter = options.rssiFilter;
+        this.smoothing = options.rssiSmoothing;
+        this.processNoise = options.rssiProcessNoise;
+        this.measurementNoise = options.rssiMeasurementNoise;
+        // closest zone first
+        this.thresholds = options.proximityZones.clone();
+        Arrays.sort(thresholds);
+        for(int i = 0; i < thresholds.length / 2; i++) {
+            double swap = thresholds[i];
+            thresholds[i] = thresholds[thresholds.length - 1 - i];
+            thresholds[thresholds.length - 1 - i] = swap;
+        }
+        this.hysteresis = options.proximityHysteresis;
+        this.timeoutMs = options.proximityTimeout;
+        this.pathLossExponent = options.pathLossExponent;
+        this.maxDevices = Math.max(options.duplicateCacheSize, 16);
+    }
+
+    long getTimeout() {
+        return timeoutMs;
+    }
+
+    /**
+     * @return the device if its zone changed with this advertisement, null otherwise
+     */
+    Device update(String address, int rssi, int measuredPower, long nowMs) {
+        Device device = devices.get(address);
+        if(device == null) {
+            if(devices.size() >= maxDevices) {evictOldest();}
+            device = new Device(address);
+            device.rssi = rssi;
+            device.covariance = measurementNoise;
+            device.zone = zoneOf(rssi);
+            device.previousZone = ZONE_LOST;
+            device.measuredPower = measuredPower;
+            device.lastSeen = nowMs;
+            devices.put(address, device);
+            return device;
+        }
+        device.lastSeen = nowMs;
+        if(measuredPower != Integer.MIN_VALUE) {device.measuredPower = measuredPower;}
+        smooth(device, rssi);
+
+        int zone = device.zone;
+        int closer = zoneOf(device.rssi - hysteresis);
+        int farther = zoneOf(device.rssi + hysteresis);
+        if(closer < zone) {
+            zone = closer;
+        } else if(farther > zone) {
+            zone = farther;
+        }
+        if(zone == device.zone) {return null;}
+        device.previousZone = device.zone;
+        device.zone = zone;
+        return device;
+    }
+
+    /**
+     * Forgets the devices that haven't been seen for the timeout.
+     * @param lost receives the devices, with their zone set to ZONE_LOST
+     */
+    void expire(long nowMs, List<Device> lost) {
+        if(timeoutMs <= 0) {return;}
+        Iterator<Device> iterator = devices.values().iterator();
+        while(iterator.hasNext()) {
+            Device device = iterator.next();
+            if(nowMs - device.lastSeen < timeoutMs) {continue;}
+            iterator.remove();
+            device.previousZone = device.zone;
+            device.zone = ZONE_LOST;
+            lost.add(device);
+        }
+    }
+
+    void clear() {
+        devices.clear();
+    }
+
+    /**
+     * @return the estimated distance in m from the log-distance path loss model, or -1 if the
+     * measured power of the device is unknown
+     */
+    double distance(Device device) {
+        if(device.measuredPower == Integer.MIN_VALUE) {return -1;}
+        return Math.pow(10, (device.measuredPower - device.rssi) / (10 * pathLossExponent));
+    }
+
+    private void smooth(Device device, int rssi) {
+        switch(filter) {
+            case FILTER_EMA:
+                device.rssi += smoothing * (rssi - device.rssi);
+                break;
+            case FILTER_KALMAN:
+                // constant position model, the process noise lets the estimate follow a moving device
+                double predicted = device.covariance + processNoise;
+                double gain = predicted / (predicted + measurementNoise);
+                device.rssi += gain * (rssi - device.rssi);
+                device.covariance = (1 - gain) * predicted;
+                break;
+            default:
+                device.rssi = rssi;
+        }
+    }
+
+    private int zoneOf(double rssi) {
+        for(int i = 0; i < thresholds.length; i++) {
+            if(rssi >= thresholds[i]) {return i;}
+        }
+        return thresholds.length;
+    }
+
+    private void evictOldest() {
+        Device oldest = null;
+        for(Device device : devices.values()) {
+            if(oldest == null || device.lastSeen < oldest.lastSeen) {oldest = device;}
+        }
+        if(oldest != null) {devices.remove(oldest.address);}
+    }
+}
@@ -29,6 +29,9 @@ package com.geniem.rnble;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import android.bluetooth.BluetoothAdapter;
@@ -43,9 +46,7 @@ import android.bluetooth.BluetoothProfile;
 import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
 
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
@@ -57,13 +58,20 @@ import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
 
 import android.os.ParcelUuid;
 import java.util.List;
-import java.util.Arrays;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import android.util.Base64;
 
 class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
@@ -73,27 +81,75 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
     private BluetoothAdapter bluetoothAdapter;
     private BluetoothManager bluetoothManager;
     private BluetoothLeScanner bluetoothLeScanner;
-    private ScanCallback scanCallback;
-    private final BluetoothGattCallback gattCallback = new RnbleGattCallback(this);
-    private ReadableArray serviceUuids;
-    private String bluetoothDeviceAddress;
-    private BluetoothGatt bluetoothGatt;
-    private int connectionState = STATE_DISCONNECTED;    
-    private List<BluetoothGattService> discoveredServices;
-    private List<String> scannedDeviceAddresses = new ArrayList<String>();
+    // all Bluetooth state is owned by this thread, bridge calls and stack callbacks are posted to it
+    private final HandlerThread bluetoothThread = startBluetoothThread();
+    private final Handler handler = new Handler(bluetoothThread.getLooper());
+    private final ScanCallback scanCallback = new RnbleScanCallback(this);
+    private final ScanScheduler scanScheduler = new ScanScheduler(handler);
+    // set while JS wants to scan, results the scheduler delivers after a stop are dropped
+    private volatile boolean scanning = false;
+    private ScanOptions scanOptions;
+    // connections by peripheral address, several peripherals can be connected at the same time
+    private final ConcurrentMap<String, RnbleConnection> connections = new ConcurrentHashMap<String, RnbleConnection>();
+    private ScanDeduplicator scanDeduplicator = new ScanDeduplicator(ScanDeduplicator.DEFAULT_CAPACITY, 0);
+    // every device seen while scanning, kept across scans for getDevices
+    private final DeviceRegistry deviceRegistry = new DeviceRegistry(ScanDeduplicator.DEFAULT_CAPACITY);
     private Boolean allowDuplicates = false;
-
-    private static final int STATE_DISCONNECTED = 0;
-    private static final int STATE_CONNECTING = 1;
-    private static final int STATE_CONNECTED = 2;
+    private boolean hexPayloads = false;
+    // encoding requested while events were held back, applied after they were replayed
+    private Boolean pendingHexPayloads;
+    private EventBatcher discoverBatcher;
+    // null unless the scan tracks proximity zones
+    private ProximityTracker proximityTracker;
+    private final Runnable proximityExpiryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if(proximityTracker == null) {return;}
+            List<ProximityTracker.Device> lost = new ArrayList<ProximityTracker.Device>();
+            proximityTracker.expire(SystemClock.elapsedRealtime(), lost);
+            for(ProximityTracker.Device device : lost) {
+                sendProximity(device);
+            }
+            handler.postDelayed(this, Math.max(proximityTracker.getTimeout() / 2, 100));
+        }
+    };
+    private final GattCache gattCache;
+    private final RnbleMetrics metrics = new RnbleMetrics();
+    private final Runnable metricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sendEvent("ble.metrics", metrics.toMap());
+            handler.postDelayed(this, metricsInterval);
+        }
+    };
+    private long metricsInterval;
+    private LifecycleOptions lifecycleOptions = new LifecycleOptions(null);
+    // events of a background period, null while the app is in the foreground
+    private EventReplayBuffer pausedEvents;
+    private boolean serviceStarted;
+
+    // GATT operation queue settings applied to every connection
+    private long operationTimeout = GattOperationQueue.DEFAULT_TIMEOUT_MS;
+    private int operationMaxRetries = GattOperationQueue.DEFAULT_MAX_RETRIES;
+    private long operationRetryDelay = GattOperationQueue.DEFAULT_RETRY_DELAY_MS;
+    // time a promise variant waits for its result, queueing included
+    private long requestTimeout = GattRequest.DEFAULT_TIMEOUT_MS;
+    private int operationQueueDepth = GattOperationQueue.DEFAULT_MAX_DEPTH;
 
     public RNBLEModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.context = reactContext;
+        this.gattCache = new GattCache(reactContext);
         reactContext.addLifecycleEventListener(this);
     }
 
 
+    private static HandlerThread startBluetoothThread() {
+        HandlerThread thread = new HandlerThread("RNBLE", Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        return thread;
+    }
+
     @Override
     public void initialize() {
         super.initialize();
@@ -102,6 +158,12 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
         if(bluetoothAdapter != null){
             bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
         }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                scanScheduler.setScanner(bluetoothLeScanner, bluetoothAdapter);
+            }
+        });
     }
 
     /**
@@ -115,6 +177,15 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
 
     @ReactMethod
     public void getState() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleGetState();
+            }
+        });
+    }
+
+    private void handleGetState() {
         WritableMap params = Arguments.createMap();
         if (bluetoothAdapter == null) {
             params.putString("state", "unsupported");            
@@ -124,54 +195,170 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
         sendEvent("ble.stateChange", params);
     }
 
+    /**
+     * @param options optional Android scan options:
+     *   duplicateTtl - ms after which a device is reported again when duplicates are filtered, 0 reports it only once
+     *   duplicateCacheSize - number of devices remembered for filtering duplicates
+     *   batchInterval - ms during which ble.discover events are collected into one ble.discoverBatch event, 0 disables batching
+     *   batchSize - maximum number of devices in one ble.discoverBatch event
+     *   filters - additional hardware scan filters, see {@link ScanOptions}
+     *   scanMode - "lowPower", "balanced", "lowLatency" (default) or "opportunistic"
+     *   reportDelay - ms the controller may delay and batch results, used only if offloaded batching is supported
+     *   callbackType - "allMatches" (default), "firstMatch", "matchLost" or "firstMatchAndMatchLost", Android 6+
+     *   matchMode - "aggressive" (default) or "sticky", Android 6+
+     *   numOfMatches - "one", "few" or "max" (default), Android 6+
+     *   scanWindow, scanInterval - ms to scan out of every interval, the interval is at least 6.5 s
+     *     because Android allows only five scan starts in 30 seconds
+     *   idleTimeout - ms without discoveries after which the scan falls back to low power mode
+     *   adaptiveInterval - ms over which scan results are counted to switch the foreground scan mode,
+     *     at least 6.5 s, 0 (default) keeps scanMode
+     *   adaptiveHighRate, adaptiveLowRate - results per interval at or above which "lowLatency" and at
+     *     or below which "balanced" is used, default 10 and 2
+     *   scanInBackground - keep scanning while the app is in the background, default false
+     *   backgroundScanMode - scan mode used in the background, default "lowPower"
+     *   proximityZones - RSSI thresholds in dBm, e.g. [-60, -80], zone 0 is the closest; when set a
+     *     ble.proximity event is sent whenever the smoothed RSSI of a device moves it to another zone
+     *   proximityHysteresis - dB the smoothed RSSI has to cross a threshold by, default 3
+     *   proximityTimeout - ms without advertisements after which a device moves to zone -1, 0 never
+     *   rssiFilter - "kalman" (default), "ema" or "none"
+     *   rssiSmoothing - weight of a new RSSI for the "ema" filter, default 0.25
+     *   rssiProcessNoise, rssiMeasurementNoise - "kalman" filter noise, default 0.125 and 4
+     *   pathLossExponent - used for the distance estimate, default 2 (free space)
+     *   reportChanges - replaces allowDuplicates, a device is reported when it is new, its advertisement
+     *     content changed or it reappears after staleTimeout ms (default 10000) without advertisements
+     *   trackDevices - record the devices for getDevices, default false, always on with reportChanges
+     */
     @ReactMethod
-    public void startScanning(ReadableArray serviceUuids, Boolean allowDuplicates) {
+    public void startScanning(ReadableArray serviceUuids, final Boolean allowDuplicates, ReadableMap options) {
         Log.d(TAG, "RNBLE startScanning - service uuid: " + serviceUuids);
-        if(bluetoothLeScanner != null){
-            if (scanCallback == null) {
-                this.allowDuplicates = allowDuplicates;
-                scannedDeviceAddresses.clear();
-                this.serviceUuids = serviceUuids;
-                scanCallback = new RnbleScanCallback(this);
-                bluetoothLeScanner.startScan(buildScanFilters(), buildScanSettings(), scanCallback);
-            }
+        if(bluetoothLeScanner == null) {
+            Log.d(TAG, "RNBLE startScanning - FAIlED to start scan");
+            return;
         }
 
-        if(bluetoothLeScanner == null || scanCallback == null) {
-             Log.d(TAG, "RNBLE startScanning - FAIlED to start scan");
+        final ScanOptions newScanOptions;
+        try {
+            newScanOptions = new ScanOptions(serviceUuids, options);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "RNBLE startScanning - invalid scan options", e);
+            return;
         }
+        final boolean resizeDeduplicator = options != null && options.hasKey("duplicateCacheSize");
+
+        // the scan callbacks run on the handler thread as well
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                scanOptions = newScanOptions;
+                RNBLEModule.this.allowDuplicates = allowDuplicates;
+                if(resizeDeduplicator) {
+                    scanDeduplicator = new ScanDeduplicator(scanOptions.duplicateCacheSize, scanOptions.duplicateTtl);
+                } else {
+                    scanDeduplicator.clear();
+                    scanDeduplicator.setTtl(scanOptions.duplicateTtl);
+                }
+                deviceRegistry.configure(scanOptions.duplicateCacheSize, scanOptions.staleTimeout);
+                if(discoverBatcher != null) {discoverBatcher.flush();}
+                discoverBatcher = scanOptions.batchInterval > 0 ? new EventBatcher(handler, scanOptions.batchInterval, scanOptions.batchSize, new DiscoverBatchSink()) : null;
+                handler.removeCallbacks(proximityExpiryRunnable);
+                proximityTracker = scanOptions.tracksProximity() ? new ProximityTracker(scanOptions) : null;
+                if(proximityTracker != null && proximityTracker.getTimeout() > 0) {
+                    handler.postDelayed(proximityExpiryRunnable, proximityTracker.getTimeout());
+                }
+                scanning = true;
+                scanScheduler.start(scanOptions, scanCallback);
+            }
+        });
     }
 
     @ReactMethod
     public void stopScanning() {
-        if(bluetoothLeScanner != null && scanCallback != null){
-            bluetoothLeScanner.stopScan(scanCallback);
-            scanCallback = null;            
-        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                scanning = false;
+                scanScheduler.stop();
+                handler.removeCallbacks(proximityExpiryRunnable);
+                proximityTracker = null;
+                if(discoverBatcher != null) {
+                    discoverBatcher.flush();
+                    discoverBatcher = null;
+                }
+            }
+        });
     }
 
     @ReactMethod
     public void disconnect(final String peripheralUuid) {
-        WritableMap params = Arguments.createMap();
-        params.putString("peripheralUuid", peripheralUuid);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDisconnect(peripheralUuid);
+            }
+        });
+    }
+
+    private void handleDisconnect(final String peripheralUuid) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(connection != null && connection.isReconnecting()) {
+            // the link is already down, with autoConnect the GATT client is kept and would connect again
+            connection.disconnectRequested = true;
+            if(connection.reconnectRunnable != null) {
+                handler.removeCallbacks(connection.reconnectRunnable);
+                connection.reconnectRunnable = null;
+            }
+            connections.remove(connection.address, connection);
+            connection.close();
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", peripheralUuid);
+            sendEvent("ble.disconnect", params);
+            return;
+        }
 
-        if (bluetoothGatt == null) {
+        if (connection == null || connection.gatt == null) {
             Log.w(TAG, "BluetoothGAtt not initialized");
 
             WritableMap error = Arguments.createMap();
             error.putInt("erroCode", -1);
             error.putString("errorMessage", "BluetoothGatt not initialized.");
+
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", peripheralUuid);
             params.putMap("error", error);
 
+            this.sendEvent("ble.disconnect", params);
         } else {
-            bluetoothGatt.disconnect();
+            // ble.disconnect is sent from onConnectionStateChange
+            connection.disconnectRequested = true;
+            connection.gatt.disconnect();
         }
-        connectionState = STATE_DISCONNECTED;
-        this.sendEvent("ble.disconnect.", params);
     }
 
+    /**
+     * @param options optional Android connect options:
+     *   mtu - ATT MTU to negotiate after service discovery, ble.connect is sent once the MTU is known
+     *   connectionPriority - "high", "balanced" or "lowPower", requested as soon as the link is up
+     *   cacheAttributes - keep the attribute tree in app storage, on the next connection ble.connect is sent
+     *     right away and discovery is answered from the cache while the live tree is verified in the background
+     *   cacheKey - separates cached trees of the same peripheral, e.g. by firmware version
+     *   reconnect - reconnect when the link drops, the attributes and subscriptions of the link are reused
+     *   autoConnect - reconnect in the background with the existing GATT client, the stack connects
+     *     whenever the peripheral is in range
+     *   maxReconnectAttempts - default 5, 0 keeps trying until disconnect() is called
+     *   reconnectDelay, maxReconnectDelay - backoff between attempts in ms, default 1000 doubling up to 30000
+     *   discoverAll - ble.connect carries the whole attribute tree as services, see discoverAll
+     */
     @ReactMethod
-    public void connect(final String peripheralUuid) { //in android peripheralUuid is the mac address of the BLE device
+    public void connect(final String peripheralUuid, final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleConnect(peripheralUuid, options);
+            }
+        });
+    }
+
+    private void handleConnect(final String peripheralUuid, ReadableMap options) { //in android peripheralUuid is the mac address of the BLE device
         Log.d(TAG, "RNBLE Connect called");
         if (bluetoothAdapter == null || peripheralUuid == null) {
             Log.w(TAG, "BluetoothAdapter not initialized or unspecified peripheralUuid.");
@@ -188,20 +375,11 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
             return;
         }
 
-        // Previously connected device.  Try to reconnect.
-/*        if (bluetoothDeviceAddress != null && peripheralUuid.equalsIgnoreCase(bluetoothDeviceAddress)
-                && bluetoothGatt != null) {
-            Log.d(TAG, "Trying to use an existing bluetoothGatt for connection.");
-            if (bluetoothGatt.connect()) {
-                connectionState = STATE_CONNECTING;
-                return;
-            }
-        }
-*/
-        final BluetoothDevice device = bluetoothAdapter.getRemoteDevice(peripheralUuid);
+        final String address = peripheralUuid.toUpperCase();
+
+        final BluetoothDevice device = bluetoothAdapter.getRemoteDevice(address);
         if (device == null) {
             Log.w(TAG, "Device not found.  Unable to connect.");
-            connectionState = STATE_DISCONNECTED;
 
             WritableMap error = Arguments.createMap();
             error.putInt("erroCode", -2);
@@ -214,39 +392,80 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
             this.sendEvent("ble.connect", params);
             return;
         }
+
+        // only the previous link to the same peripheral is replaced, other connections stay up
+        RnbleConnection previous = connections.remove(address);
+        if(previous != null) {previous.close();}
+
+        RnbleConnection connection = new RnbleConnection(address, handler, new RnbleOperationListener(address));
+        connection.queue.configure(operationTimeout, operationMaxRetries, operationRetryDelay, operationQueueDepth);
+        connection.options = new ConnectOptions(options);
+        connection.connectStartedAt = System.nanoTime();
+        metrics.connects++;
+        if(connection.options.cacheAttributes) {
+            connection.cacheKey = GattCache.key(address, connection.options.cacheKey);
+        }
+        connections.put(address, connection);
     
         // We want to directly connect to the device, so we are setting the autoConnect
         // parameter to false.
-        if(bluetoothGatt != null) {bluetoothGatt.close();}
-        bluetoothGatt = device.connectGatt(context, false, gattCallback);
+        connection.state = RnbleConnection.STATE_CONNECTING;
+        // the queue is armed once the link is up, operations requested until then wait in it
+        connection.gatt = device.connectGatt(context, false, new RnbleGattCallback(this, connection));
         Log.d(TAG, "Trying to create a new connection.");
-        bluetoothDeviceAddress = peripheralUuid;
-        connectionState = STATE_CONNECTING;
     }
 
     @ReactMethod
-    public void discoverServices(final String peripheralUuid, ReadableArray uuids){
+    public void discoverServices(final String peripheralUuid, final ReadableArray uuids) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverServices(peripheralUuid, uuids, null);
+            }
+        });
+    }
+
+    /**
+     * Promise variant of discoverServices, resolves with the service uuids.
+     */
+    @ReactMethod
+    public void discoverServicesAsync(final String peripheralUuid, final ReadableArray uuids, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverServices(peripheralUuid, uuids, createRequest(promise));
+            }
+        });
+    }
+
+    private void handleDiscoverServices(final String peripheralUuid, ReadableArray uuids, GattRequest request) {
         Log.d(TAG, "discoverServices");
         WritableArray filteredServiceUuids = Arguments.createArray();
+        AttributeIndex attributes = getAttributes(peripheralUuid);
+        if(request != null && attributes == null) {
+            request.reject(GattOperation.ERROR_NOT_CONNECTED, "Peripheral not connected.");
+            return;
+        }
 
-        if(bluetoothGatt != null && this.discoveredServices != null && uuids != null && uuids.size() > 0){
+        if(attributes != null && uuids != null && uuids.size() > 0){
             //filter discovered services
-            for(BluetoothGattService service : this.discoveredServices){
-                String uuid = service.getUuid().toString();
-                for(int i = 0; i < uuids.size(); i++){
-                    if(uuid.equalsIgnoreCase(uuids.getString(i))){
-                        filteredServiceUuids.pushString(toNobleUuid(uuid));
-                    }
+            for(int i = 0; i < uuids.size(); i++){
+                BluetoothGattService service = attributes.getService(RnbleUuids.parse(uuids.getString(i)));
+                if(service != null){
+                    filteredServiceUuids.pushString(toNobleUuid(service.getUuid()));
                 }
             }
-        } else if(uuids == null || uuids.size() == 0){
+        } else if(attributes != null){
             //if no uuids are requested return all discovered service uuids
-            for(BluetoothGattService service : this.discoveredServices){
-                String uuid = service.getUuid().toString();
-                filteredServiceUuids.pushString(toNobleUuid(uuid));
+            for(BluetoothGattService service : attributes.services){
+                filteredServiceUuids.pushString(toNobleUuid(service.getUuid()));
             }
         }
         
+        if(request != null) {
+            request.resolve(filteredServiceUuids);
+            return;
+        }
         WritableMap params = Arguments.createMap();
         params.putString("peripheralUuid", peripheralUuid);
         params.putArray("serviceUuids", filteredServiceUuids);
@@ -255,77 +474,67 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
     }
 
     @ReactMethod
-    public void discoverCharacteristics(final String peripheralUuid, final String serviceUuid, ReadableArray characteristicUuids){
-        WritableArray requestedCharacteristics = Arguments.createArray();
-        List<BluetoothGattCharacteristic> filteredCharacteristics = new ArrayList<BluetoothGattCharacteristic>(); 
-
-        for(BluetoothGattService service : this.discoveredServices){
-            String uuid = service.getUuid().toString();
-            //filter requested service
-            if(uuid != null && uuid.equalsIgnoreCase(serviceUuid)){      
-                List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
-
-                //remove characteristics from the characteristics list based on requested characteristicUuids          
-                if(characteristicUuids != null && characteristicUuids.size() > 0){
-                    for(int i = 0; i <  characteristicUuids.size(); i++){                        
-                        Iterator<BluetoothGattCharacteristic> iterator = characteristics.iterator();
-                        while(iterator.hasNext()){
-                            BluetoothGattCharacteristic characteristic = iterator.next();
-                            if(characteristicUuids.getString(i).equalsIgnoreCase(characteristic.getUuid().toString())){
-                                filteredCharacteristics.add(characteristic);
-                                break;                                
-                            }
-                        }
-                    }                    
-                }
-
-                //process characteristics 
-                for(BluetoothGattCharacteristic c : filteredCharacteristics){
-                    WritableArray properties = Arguments.createArray();
-                    int propertyBitmask = c.getProperties();
-
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_BROADCAST) != 0){
-                        properties.pushString("boradcast");
-                    }
-
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_READ) != 0){
-                        properties.pushString("read");
-                    }
-
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0){
-                        properties.pushString("writeWithoutResponse");
-                    }
-
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0){
-                        properties.pushString("write");
-                    }
-
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0){
-                       properties.pushString("notify");
-                    }                                                
+    public void discoverCharacteristics(final String peripheralUuid, final String serviceUuid, final ReadableArray characteristicUuids) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverCharacteristics(peripheralUuid, serviceUuid, characteristicUuids, null);
+            }
+        });
+    }
 
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0){
-                        properties.pushString("indicaste");
-                    }
+    /**
+     * Promise variant of discoverCharacteristics, resolves with the characteristics.
+     */
+    @ReactMethod
+    public void discoverCharacteristicsAsync(final String peripheralUuid, final String serviceUuid, final ReadableArray characteristicUuids, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverCharacteristics(peripheralUuid, serviceUuid, characteristicUuids, createRequest(promise));
+            }
+        });
+    }
 
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_SIGNED_WRITE) != 0){
-                        properties.pushString("authenticatedSignedWrites");
-                    }
+    private void handleDiscoverCharacteristics(final String peripheralUuid, final String serviceUuid, ReadableArray characteristicUuids, GattRequest request) {
+        WritableArray requestedCharacteristics = Arguments.createArray();
+        List<BluetoothGattCharacteristic> filteredCharacteristics = new ArrayList<BluetoothGattCharacteristic>(); 
 
-                    if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_EXTENDED_PROPS) != 0){
-                        properties.pushString("extendedProperties");
+        AttributeIndex attributes = getAttributes(peripheralUuid);
+        UUID sUuid = RnbleUuids.parse(serviceUuid);
+        BluetoothGattService service = attributes != null ? attributes.getService(sUuid) : null;
+        if(request != null && service == null) {
+            request.reject(attributes == null ? GattOperation.ERROR_NOT_CONNECTED : GattOperation.ERROR_NOT_FOUND,
+                attributes == null ? "Peripheral not connected." : "Service not found.");
+            return;
+        }
+        if(service != null){
+            //filter characteristics based on requested characteristicUuids
+            if(characteristicUuids != null && characteristicUuids.size() > 0){
+                for(int i = 0; i <  characteristicUuids.size(); i++){                        
+                    BluetoothGattCharacteristic characteristic = attributes.getCharacteristic(sUuid, RnbleUuids.parse(characteristicUuids.getString(i)));
+                    if(characteristic != null){
+                        filteredCharacteristics.add(characteristic);
                     }
+                }                    
+            } else {
+                filteredCharacteristics.addAll(service.getCharacteristics());
+            }
 
-                    WritableMap characteristicObject = Arguments.createMap();
-                    characteristicObject.putArray("properties", properties);
-                    characteristicObject.putString("uuid", toNobleUuid(c.getUuid().toString()));
+            //process characteristics 
+            for(BluetoothGattCharacteristic c : filteredCharacteristics){
+                WritableMap characteristicObject = Arguments.createMap();
+                characteristicObject.putArray("properties", createProperties(c.getProperties()));
+                characteristicObject.putString("uuid", toNobleUuid(c.getUuid()));
 
-                    requestedCharacteristics.pushMap(characteristicObject);
-                }
-            break;    
+                requestedCharacteristics.pushMap(characteristicObject);
             }
         }
 
+        if(request != null) {
+            request.resolve(requestedCharacteristics);
+            return;
+        }
         WritableMap params = Arguments.createMap();
         params.putString("peripheralUuid", peripheralUuid);
         params.putString("serviceUuid", toNobleUuid(serviceUuid));
@@ -334,28 +543,49 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
     }
 
     @ReactMethod
-    public void discoverDescriptors(final String peripheralUuid, final String serviceUuid, final String characteristicUuid){
+    public void discoverDescriptors(final String peripheralUuid, final String serviceUuid, final String characteristicUuid) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverDescriptors(peripheralUuid, serviceUuid, characteristicUuid, null);
+            }
+        });
+    }
+
+    /**
+     * Promise variant of discoverDescriptors, resolves with the descriptor uuids.
+     */
+    @ReactMethod
+    public void discoverDescriptorsAsync(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverDescriptors(peripheralUuid, serviceUuid, characteristicUuid, createRequest(promise));
+            }
+        });
+    }
+
+    private void handleDiscoverDescriptors(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, GattRequest request) {
         WritableArray descriptors = Arguments.createArray();
 
-        for(BluetoothGattService service : this.discoveredServices){
-            String uuid = service.getUuid().toString();
-            //filter requested service
-            if(uuid != null && uuid.equalsIgnoreCase(serviceUuid)){      
-                List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
-                for(BluetoothGattCharacteristic characteristic : characteristics){
-                    String cUuid = characteristic.getUuid().toString();
-                    if(cUuid != null && cUuid.equalsIgnoreCase(characteristicUuid)){
-                        List<BluetoothGattDescriptor> descriptorList = characteristic.getDescriptors();
-                        for(BluetoothGattDescriptor descriptor : descriptorList){
-                            descriptors.pushString(descriptor.getUuid().toString());
-                        }
-                        break;
-                    }
-                }
-            break;
+        AttributeIndex attributes = getAttributes(peripheralUuid);
+        BluetoothGattCharacteristic characteristic = attributes != null ? attributes.getCharacteristic(RnbleUuids.parse(serviceUuid), RnbleUuids.parse(characteristicUuid)) : null;
+        if(request != null && characteristic == null) {
+            request.reject(attributes == null ? GattOperation.ERROR_NOT_CONNECTED : GattOperation.ERROR_NOT_FOUND,
+                attributes == null ? "Peripheral not connected." : "Characteristic not found.");
+            return;
+        }
+        if(characteristic != null){
+            List<BluetoothGattDescriptor> descriptorList = characteristic.getDescriptors();
+            for(BluetoothGattDescriptor descriptor : descriptorList){
+                descriptors.pushString(toNobleUuid(descriptor.getUuid()));
             }
         }
 
+        if(request != null) {
+            request.resolve(descriptors);
+            return;
+        }
         WritableMap params = Arguments.createMap();
         params.putString("peripheralUuid", peripheralUuid);
         params.putString("serviceUuid", toNobleUuid(serviceUuid));
@@ -364,293 +594,1833 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
         this.sendEvent("ble.descriptorsDiscover", params);
     }
 
-    final static UUID UUID_CLIENT_CHARACTERISTIC_CONFIG = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
-
+    /**
+     * Sends the whole attribute tree of a connected peripheral with a ble.attributesDiscover event:
+     * services with their type and included service uuids, characteristics with their properties
+     * and descriptor uuids. Android discovers the tree in one go on connect, so this needs no
+     * further round trips to the peripheral.
+     */
     @ReactMethod
-    public void notify(String peripheralUuid, String serviceUuid, String characteristicUuid, Boolean notify){
-        for(BluetoothGattService service : this.discoveredServices){
-            String uuid = service.getUuid().toString();
-            //find requested service
-            if(uuid != null && uuid.equalsIgnoreCase(serviceUuid)){
-                List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
-                //find requested characteristic
-                for(BluetoothGattCharacteristic characteristic : characteristics){
-                    String cUuid = characteristic.getUuid().toString();
-                    if(cUuid != null && cUuid.equalsIgnoreCase(characteristicUuid)){
-                        if(bluetoothGatt != null) {
-                            BluetoothGattDescriptor descriptor = characteristic.getDescriptor(UUID_CLIENT_CHARACTERISTIC_CONFIG);
-                            if(descriptor != null) {
-                                descriptor.setValue(notify ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
-                                boolean result = bluetoothGatt.writeDescriptor(descriptor);
-                                if(result) {
-                                    bluetoothGatt.setCharacteristicNotification(characteristic, notify);
-                                    WritableMap params = Arguments.createMap();
-                                    params.putString("peripheralUuid", peripheralUuid);
-                                    params.putString("serviceUuid", toNobleUuid(serviceUuid));
-                                    params.putString("characteristicUuid", toNobleUuid(characteristicUuid));
-                                    params.putBoolean("state", notify);
-                                    this.sendEvent("ble.notify", params);
-                                }
-                            }
-                        }
-                        break;
-                    }
-                }
-                break;  
+    public void discoverAll(final String peripheralUuid) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverAll(peripheralUuid, null);
             }
-        }
+        });
     }
 
+    /**
+     * Promise variant of discoverAll, resolves with the services.
+     */
     @ReactMethod
-    public void read(String peripheralUuid, String serviceUuid, String characteristicUuid){
-        for(BluetoothGattService service : this.discoveredServices){
-            String uuid = service.getUuid().toString();
-            //find requested service
-            if(uuid != null && uuid.equalsIgnoreCase(serviceUuid)){
-                List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
-                //find requested characteristic
-                for(BluetoothGattCharacteristic characteristic : characteristics){
-                    String cUuid = characteristic.getUuid().toString();
-                    if(cUuid != null && cUuid.equalsIgnoreCase(characteristicUuid)){
-                        if(bluetoothGatt != null) {
-                            bluetoothGatt.readCharacteristic(characteristic);
-                        }        
-                        break;
-                    }
-                }
-                break;  
-            }
-        }
-    }
-
-    @ReactMethod
-    public void write(String deviceUuid,String serviceUuid,String characteristicUuid,String data, Boolean withoutResponse){
-        for(BluetoothGattService service : this.discoveredServices){
-            String uuid = service.getUuid().toString();
-            //find requested service
-            if(uuid != null && uuid.equalsIgnoreCase(serviceUuid)){
-                List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
-                //find requested characteristic
-                for(BluetoothGattCharacteristic characteristic : characteristics){
-                    String cUuid = characteristic.getUuid().toString();
-                    if(cUuid != null && cUuid.equalsIgnoreCase(characteristicUuid)){                     
-                        if(bluetoothGatt != null) {
-                            Log.d(TAG, "Writing data to BLE characteristic");
-                            //set new data to characteristic
-                            if(withoutResponse){
-                                characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
-                            } else {
-                                characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT); // TODO: not tested                                
-                            }
-                            byte[] bArr = Base64.decode(data, Base64.DEFAULT);
-                            Log.d(TAG, "bArr: " + Arrays.toString(bArr) + "\n" + " bArr length: " + bArr.length);
-                            characteristic.setValue(bArr);
-                            //write the data to the characterustic
-                            if(!bluetoothGatt.writeCharacteristic(characteristic)){
-                                Log.d(TAG, "Error initating BLE write operation.");
-                            }
-                        }
-                    break;
-                    }
-                }
-            break;
+    public void discoverAllAsync(final String peripheralUuid, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverAll(peripheralUuid, createRequest(promise));
             }
-        }       
+        });
     }
 
-    @Override
-    public void onHostResume() {
-        Log.d(TAG, "onHostResume");
-    }
-
-    @Override
-    public void onHostPause() {
-        Log.v(TAG, "onHostPause");
-        if(bluetoothLeScanner != null && scanCallback != null){
-            bluetoothLeScanner.stopScan(scanCallback);
-            scanCallback = null;
-        }
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-            bluetoothGatt = null;
-            connectionState = STATE_DISCONNECTED;
+    private void handleDiscoverAll(final String peripheralUuid, GattRequest request) {
+        AttributeIndex attributes = getAttributes(peripheralUuid);
+        if(request != null && attributes == null) {
+            request.reject(GattOperation.ERROR_NOT_CONNECTED, "Peripheral not connected.");
+            return;
         }
-    }
+        WritableArray services = attributes != null ? createAttributeTree(attributes) : Arguments.createArray();
 
-    @Override
-    public void onHostDestroy() {
-        Log.v(TAG, "onHostDestroy");
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-            bluetoothGatt = null;
-            connectionState = STATE_DISCONNECTED;
+        if(request != null) {
+            request.resolve(services);
+            return;
         }
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", peripheralUuid);
+        params.putArray("services", services);
+        this.sendEvent("ble.attributesDiscover", params);
     }
 
-    private void sendEvent(String eventName, WritableMap params) {
-        getReactApplicationContext()
-            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-            .emit(eventName, params);
+    @ReactMethod
+    public void discoverIncludedServices(final String peripheralUuid, final String serviceUuid, final ReadableArray serviceUuids) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscoverIncludedServices(peripheralUuid, serviceUuid, serviceUuids);
+            }
+        });
     }
 
-    private List<ScanFilter> buildScanFilters() {
-        List<ScanFilter> scanFilters = new ArrayList<>();
+    private void handleDiscoverIncludedServices(final String peripheralUuid, final String serviceUuid, ReadableArray serviceUuids) {
+        WritableArray includedServiceUuids = Arguments.createArray();
 
-        ScanFilter.Builder builder = new ScanFilter.Builder();        
-        for(int i = 0; i < this.serviceUuids.size(); i++){
-            builder.setServiceUuid(ParcelUuid.fromString(this.serviceUuids.getString(i)));
+        AttributeIndex attributes = getAttributes(peripheralUuid);
+        BluetoothGattService service = attributes != null ? attributes.getService(RnbleUuids.parse(serviceUuid)) : null;
+        if(service != null){
+            Set<UUID> requested = new HashSet<UUID>();
+            if(serviceUuids != null){
+                for(int i = 0; i < serviceUuids.size(); i++){
+                    requested.add(RnbleUuids.parse(serviceUuids.getString(i)));
+                }
+            }
+            for(BluetoothGattService includedService : service.getIncludedServices()){
+                if(requested.isEmpty() || requested.contains(includedService.getUuid())){
+                    includedServiceUuids.pushString(toNobleUuid(includedService.getUuid()));
+                }
+            }
         }
-        scanFilters.add(builder.build());
 
-        return scanFilters;
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", peripheralUuid);
+        params.putString("serviceUuid", toNobleUuid(serviceUuid));
+        params.putArray("includedServiceUuids", includedServiceUuids);
+        this.sendEvent("ble.includedServicesDiscover", params);
     }
 
-    private ScanSettings buildScanSettings() {
-        ScanSettings.Builder builder = new ScanSettings.Builder();
-        builder.setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY);
-        return builder.build();
-    }    
+    final static UUID UUID_CLIENT_CHARACTERISTIC_CONFIG = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+    final static UUID UUID_GENERIC_ATTRIBUTE = UUID.fromString("00001801-0000-1000-8000-00805f9b34fb");
+    final static UUID UUID_SERVICE_CHANGED = UUID.fromString("00002a05-0000-1000-8000-00805f9b34fb");
 
-    private String stateToString(int state){
-        switch (state) {
-            case BluetoothAdapter.STATE_OFF:
-                return "poweredOff";
-            case BluetoothAdapter.STATE_TURNING_OFF:
-                return "turningOff";
-            case BluetoothAdapter.STATE_ON:
-                return "poweredOn";
-            case BluetoothAdapter.STATE_TURNING_ON:
-                return "turningOn";
-            default:
-                return "unknown";
-        }
+    @ReactMethod
+    public void notify(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final Boolean notify, final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleNotify(peripheralUuid, serviceUuid, characteristicUuid, notify, options, null);
+            }
+        });
     }
 
+    /**
+     * Promise variant of notify, resolves with the notification state once the descriptor is written.
+     */
+    @ReactMethod
+    public void notifyAsync(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final Boolean notify, final ReadableMap options, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleNotify(peripheralUuid, serviceUuid, characteristicUuid, notify, options, createRequest(promise));
+            }
+        });
+    }
 
-    // GATT callback and methods
-    private class RnbleGattCallback extends BluetoothGattCallback {
-        private RNBLEModule rnbleModule;
- 
-        public RnbleGattCallback(RNBLEModule rnbleModule) {
-            this.rnbleModule = rnbleModule;
+    private void handleNotify(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final Boolean notify, final ReadableMap options, final GattRequest request) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleNotify(peripheralUuid, serviceUuid, characteristicUuid, notify, options, request);
+            }
+        })) {return;}
+        BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+        if(characteristic == null) {
+            Log.w(TAG, "notify: characteristic " + characteristicUuid + " not found");
+            rejectNotFound(connection, request);
+            return;
         }
 
-        @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            BluetoothDevice remoteDevice = gatt.getDevice();
-            String remoteAddress = remoteDevice.getAddress();
-            WritableMap params = Arguments.createMap();
-            params.putString("peripheralUuid", remoteAddress); //remote address used here instead of uuid, not converted to noble format
-
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
-                Log.i(TAG, "Connected to GATT server. Discovering services.");
-                connectionState = STATE_CONNECTED;
-                // Attempts to discover services after successful connection.
-                bluetoothGatt.discoverServices();
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                connectionState = STATE_DISCONNECTED;
-                if(bluetoothGatt != null){
-                    bluetoothGatt.close();
-                    bluetoothGatt = null;
+        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(UUID_CLIENT_CHARACTERISTIC_CONFIG);
+        if(descriptor != null) {
+            NotificationBuffer buffer = null;
+            if(notify) {
+                try {
+                    buffer = NotificationBuffer.fromOptions(options, characteristic, handler, new NotificationBatchSink(connection.address));
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "notify: invalid options", e);
+                    if(request != null) {
+                        request.reject(-1, e.getMessage());
+                        return;
+                    }
+                    WritableMap params = createAttributeParams(connection.address, characteristic);
+                    params.putBoolean("state", false);
+                    params.putMap("error", createError(-1, e.getMessage()));
+                    sendEvent("ble.notify", params);
+                    return;
                 }
-                Log.i(TAG, "Disconnected from GATT server.");
-                rnbleModule.sendEvent("ble.disconnect", params);
             }
+            // values still buffered for the previous subscription are delivered first
+            NotificationBuffer previous = buffer != null ? connection.notificationBuffers.put(characteristic, buffer) : connection.notificationBuffers.remove(characteristic);
+            if(previous != null) {previous.flush();}
+
+            // notifications arriving right after the descriptor write need the local registration already,
+            // the subscription is only recorded once the write succeeded, see applyNotifyState
+            if(notify) {
+                connection.gatt.setCharacteristicNotification(characteristic, true);
+            }
+            // ble.notify is sent from onDescriptorWrite
+            GattOperation operation = GattOperation.writeDescriptor(descriptor, notify ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
+            operation.notifyState = notify;
+            operation.request = request;
+            connection.queue.enqueue(operation);
+        } else if(request != null) {
+            request.reject(GattOperation.ERROR_NOT_FOUND, "Characteristic doesn't support notifications.");
         }
+    }
 
-        @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            Log.i(TAG, "onServicesDiscovered");
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                rnbleModule.discoveredServices = bluetoothGatt.getServices();
-            } else {
-                Log.w(TAG, "onServicesDiscovered received: " + status);
+    /**
+     * Applies the result of a notification descriptor write. A subscription is added or removed only if the
+     * write succeeded, a failed subscribe is rolled back so it isn't renewed after a reconnect.
+     */
+    private void applyNotifyState(RnbleConnection connection, BluetoothGattCharacteristic characteristic, boolean notify, boolean success) {
+        if(connection == null) {return;}
+        if(success && notify) {
+            connection.subscriptions.add(characteristic);
+        } else if(success) {
+            connection.subscriptions.remove(characteristic);
+            if(connection.gatt != null) {connection.gatt.setCharacteristicNotification(characteristic, false);}
+        } else if(notify && !connection.subscriptions.contains(characteristic)) {
+            if(connection.gatt != null) {connection.gatt.setCharacteristicNotification(characteristic, false);}
+            NotificationBuffer buffer = connection.notificationBuffers.remove(characteristic);
+            if(buffer != null) {buffer.cancel();}
+        }
+    }
+
+    @ReactMethod
+    public void read(final String peripheralUuid, final String serviceUuid, final String characteristicUuid) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleRead(peripheralUuid, serviceUuid, characteristicUuid, null);
             }
-  
-            connectionState = STATE_CONNECTED;
+        });
+    }
 
-            BluetoothDevice remoteDevice = gatt.getDevice();
-            String remoteAddress = remoteDevice.getAddress();
+    /**
+     * Promise variant of read, resolves with the value encoded like the ble.data events.
+     */
+    @ReactMethod
+    public void readAsync(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleRead(peripheralUuid, serviceUuid, characteristicUuid, createRequest(promise));
+            }
+        });
+    }
 
-            WritableMap params = Arguments.createMap();
-            params.putString("peripheralUuid", remoteAddress);
-            rnbleModule.sendEvent("ble.connect", params);
+    private void handleRead(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final GattRequest request) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleRead(peripheralUuid, serviceUuid, characteristicUuid, request);
+            }
+        })) {return;}
+        BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+        if(characteristic == null) {
+            Log.w(TAG, "read: characteristic " + characteristicUuid + " not found");
+            rejectNotFound(connection, request);
+            return;
         }
 
-        @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            byte[] characteristicValue = characteristic.getValue();
-            if(characteristicValue != null) {
-                WritableMap params = Arguments.createMap();
+        GattOperation operation = GattOperation.read(characteristic);
+        operation.request = request;
+        connection.queue.enqueue(operation);
+    }
 
-                BluetoothDevice remoteDevice = gatt.getDevice();
-                String remoteAddress = remoteDevice.getAddress();
+    @ReactMethod
+    public void write(final String deviceUuid, final String serviceUuid, final String characteristicUuid, final String data, final Boolean withoutResponse) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleWrite(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse, null);
+            }
+        });
+    }
 
-                params.putString("peripheralUuid", remoteAddress);
+    /**
+     * Promise variant of write, resolves once the write callback arrived.
+     */
+    @ReactMethod
+    public void writeAsync(final String deviceUuid, final String serviceUuid, final String characteristicUuid, final String data, final Boolean withoutResponse, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleWrite(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse, createRequest(promise));
+            }
+        });
+    }
 
-                params.putString("serviceUuid", toNobleUuid(characteristic.getService().getUuid().toString()));
-                params.putString("characteristicUuid", toNobleUuid(characteristic.getUuid().toString()));
-                params.putString("data", Arrays.toString(characteristicValue));
-                params.putBoolean("isNotification", true);
-                rnbleModule.sendEvent("ble.data", params);
+    private void handleWrite(final String deviceUuid, final String serviceUuid, final String characteristicUuid, final String data, final Boolean withoutResponse, final GattRequest request) {
+        RnbleConnection connection = getConnection(deviceUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleWrite(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse, request);
             }
+        })) {return;}
+        BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+        if(characteristic == null) {
+            Log.w(TAG, "write: characteristic " + characteristicUuid + " not found");
+            rejectNotFound(connection, request);
+            return;
         }
 
-        @Override
-        public void onCharacteristicRead (BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status){
-            byte[] characteristicValue = null;
-            Boolean notification = false;            
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                Log.w(TAG, "!!! characteristic read!!!");
-                characteristicValue = characteristic.getValue();
-            } else {
-                Log.w(TAG, "onCharacteristicRead received: " + status);
+        Log.d(TAG, "Writing data to BLE characteristic");
+        int writeType = withoutResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+        byte[] bArr = Base64.decode(data, Base64.DEFAULT);
+        Log.d(TAG, "bArr length: " + bArr.length);
+        //the data is set to the characteristic when the queued write is started
+        GattOperation operation = GattOperation.write(characteristic, bArr, writeType);
+        operation.request = request;
+        connection.queue.enqueue(operation);
+    }
+
+    /**
+     * Writes a payload of any size to a characteristic. The payload is split into chunks that fit
+     * the link's MTU and the chunks are written one after another, each after the previous one
+     * was accepted by the stack. Progress is reported with ble.writeStreamProgress events and the
+     * result with a ble.writeStreamComplete event carrying the duration and throughput.
+     * @param options optional: streamId - echoed in the events, withoutResponse - default true,
+     *   chunkSize - bytes per write, defaults to MTU - 3, progressInterval - minimum ms between progress events
+     */
+    @ReactMethod
+    public void writeStream(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final String data, final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleWriteStream(peripheralUuid, serviceUuid, characteristicUuid, data, options);
             }
+        });
+    }
 
+    private void handleWriteStream(final String peripheralUuid, final String serviceUuid, final String characteristicUuid, final String data, final ReadableMap options) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleWriteStream(peripheralUuid, serviceUuid, characteristicUuid, data, options);
+            }
+        })) {return;}
+        BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+        String streamId = RnbleOptions.getString(options, "streamId", null);
+        if(characteristic == null) {
+            Log.w(TAG, "writeStream: characteristic " + characteristicUuid + " not found");
             WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", peripheralUuid);
+            params.putString("serviceUuid", toNobleUuid(serviceUuid));
+            params.putString("characteristicUuid", toNobleUuid(characteristicUuid));
+            params.putString("streamId", streamId);
+            params.putMap("error", createError(-1, "Characteristic not found."));
+            sendEvent("ble.writeStreamComplete", params);
+            return;
+        }
 
+        int chunkSize = (int) RnbleOptions.getDouble(options, "chunkSize", connection.mtu - 3);
+        boolean withoutResponse = RnbleOptions.getBoolean(options, "withoutResponse", true);
+        long progressInterval = (long) RnbleOptions.getDouble(options, "progressInterval", 100);
+        WriteStream stream = new WriteStream(streamId, characteristic, Base64.decode(data, Base64.DEFAULT), chunkSize, withoutResponse, progressInterval);
+        Log.d(TAG, "writeStream: " + stream.totalBytes() + " bytes in chunks of " + chunkSize);
+        if(stream.isComplete()) {
+            sendWriteStreamEvent(connection.address, stream, "ble.writeStreamComplete", null);
+            return;
+        }
+        connection.queue.enqueue(stream.nextChunk());
+    }
+
+    private void onWriteStreamChunk(RnbleConnection connection, WriteStream stream, int status) {
+        if(status == BluetoothGatt.GATT_CONNECTION_CONGESTED) {
+            // the chunk was not sent, try it again
+            connection.queue.enqueue(stream.nextChunk());
+            return;
+        }
+        if(status != BluetoothGatt.GATT_SUCCESS) {
+            sendWriteStreamEvent(connection.address, stream, "ble.writeStreamComplete", createError(status, "Characteristic write failed."));
+            return;
+        }
+
+        stream.chunkWritten();
+        if(stream.isComplete()) {
+            Log.d(TAG, "writeStream: " + stream.totalBytes() + " bytes in " + stream.elapsedMs() + " ms");
+            sendWriteStreamEvent(connection.address, stream, "ble.writeStreamComplete", null);
+            return;
+        }
+        if(stream.progressDue()) {
+            sendWriteStreamEvent(connection.address, stream, "ble.writeStreamProgress", null);
+        }
+        connection.queue.enqueue(stream.nextChunk());
+    }
+
+    private void sendWriteStreamEvent(String peripheralUuid, WriteStream stream, String eventName, WritableMap error) {
+        WritableMap params = createAttributeParams(peripheralUuid, stream.characteristic);
+        params.putString("streamId", stream.streamId);
+        params.putInt("bytesWritten", stream.bytesWritten());
+        params.putInt("totalBytes", stream.totalBytes());
+        if(eventName.equals("ble.writeStreamComplete")) {
+            params.putDouble("duration", stream.elapsedMs());
+            params.putDouble("throughput", stream.throughput());
+        }
+        if(error != null) {
+            params.putMap("error", error);
+        }
+        sendEvent(eventName, params);
+    }
+
+    /**
+     * Writes several characteristics as one unit. The writes run inside a reliable write
+     * transaction so that the peripheral applies all of them or none, if the peripheral doesn't
+     * support reliable writes they are written one after another. The result of every item is
+     * sent with one ble.writeBatch event.
+     * @param items array of {serviceUuid, characteristicUuid, data}, data is base64 encoded
+     * @param options optional: batchId - echoed in the event, reliable - default true
+     */
+    @ReactMethod
+    public void writeBatch(final String peripheralUuid, final ReadableArray items, final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleWriteBatch(peripheralUuid, items, options);
+            }
+        });
+    }
+
+    private void handleWriteBatch(final String peripheralUuid, final ReadableArray items, final ReadableMap options) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleWriteBatch(peripheralUuid, items, options);
+            }
+        })) {return;}
+        String batchId = RnbleOptions.getString(options, "batchId", null);
+        boolean reliable = RnbleOptions.getBoolean(options, "reliable", true);
+        WriteBatch batch = new WriteBatch(batchId, items, reliable);
+
+        List<GattOperation> operations = new ArrayList<GattOperation>(items.size() + 1);
+        for(int i = 0; i < items.size(); i++) {
+            ReadableMap item = items.getMap(i);
+            String serviceUuid = RnbleOptions.getString(item, "serviceUuid", "");
+            String characteristicUuid = RnbleOptions.getString(item, "characteristicUuid", "");
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+            if(characteristic == null) {
+                Log.w(TAG, "writeBatch: characteristic " + characteristicUuid + " not found");
+                batch.statuses[i] = -1;
+                continue;
+            }
+            batch.characteristics[i] = characteristic;
+            byte[] value = RnbleOptions.getBytes(item, "data");
+            batch.values[i] = value != null ? value : new byte[0];
+            operations.add(batch.write(i));
+        }
+        batch.pendingWrites = operations.size();
+
+        if(operations.isEmpty() || (batch.reliable && batch.pendingWrites < items.size())) {
+            // a transaction with missing items is not applied at all
+            batch.finish(GattOperation.ERROR_ABORTED);
+            sendWriteBatchEvent(peripheralUuid, batch);
+            return;
+        }
+        if(batch.reliable) {
+            operations.add(batch.execute());
+        }
+        connection.queue.enqueueAll(operations);
+    }
+
+    private void onWriteBatchItem(RnbleConnection connection, GattOperation operation, int status) {
+        WriteBatch batch = operation.batch;
+        if(batch.finished) {return;}
+        if(status == BluetoothGatt.GATT_REQUEST_NOT_SUPPORTED && batch.reliable && operation.batchIndex == 0) {
+            // prepared writes are not supported, write the items one by one instead
+            Log.d(TAG, "writeBatch: reliable write not supported, falling back to plain writes");
+            connection.gatt.abortReliableWrite();
+            batch.reliable = false;
+            // the other items are still queued and go out as plain writes
+            connection.queue.enqueueFirst(batch.write(0));
+            return;
+        }
+
+        batch.statuses[operation.batchIndex] = status;
+        batch.pendingWrites--;
+        if(status != BluetoothGatt.GATT_SUCCESS && batch.reliable) {
+            connection.gatt.abortReliableWrite();
+            finishWriteBatch(connection, batch, GattOperation.ERROR_ABORTED);
+            return;
+        }
+        // a reliable batch is finished by onReliableWriteCompleted
+        if(batch.pendingWrites == 0 && !batch.reliable) {
+            finishWriteBatch(connection, batch, GattOperation.ERROR_ABORTED);
+        }
+    }
+
+    private void onWriteBatchExecuted(RnbleConnection connection, WriteBatch batch, int status) {
+        if(batch.finished) {return;}
+        if(status != BluetoothGatt.GATT_SUCCESS) {
+            // the peripheral didn't apply the prepared writes
+            for(int i = 0; i < batch.statuses.length; i++) {
+                batch.statuses[i] = status;
+            }
+        }
+        finishWriteBatch(connection, batch, status);
+    }
+
+    private void finishWriteBatch(RnbleConnection connection, WriteBatch batch, int remainingStatus) {
+        batch.finish(remainingStatus);
+        sendWriteBatchEvent(connection.address, batch);
+    }
+
+    private void sendWriteBatchEvent(String peripheralUuid, WriteBatch batch) {
+        WritableArray results = Arguments.createArray();
+        boolean failed = false;
+        for(int i = 0; i < batch.statuses.length; i++) {
+            ReadableMap item = batch.items.getMap(i);
+            WritableMap result = Arguments.createMap();
+            result.putString("serviceUuid", toNobleUuid(RnbleOptions.getString(item, "serviceUuid", "")));
+            result.putString("characteristicUuid", toNobleUuid(RnbleOptions.getString(item, "characteristicUuid", "")));
+            result.putInt("status", batch.statuses[i]);
+            results.pushMap(result);
+            failed |= batch.statuses[i] != BluetoothGatt.GATT_SUCCESS;
+        }
+
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", peripheralUuid);
+        params.putString("batchId", batch.batchId);
+        params.putBoolean("reliable", batch.reliable);
+        params.putArray("results", results);
+        if(failed) {
+            params.putMap("error", createError(-1, "Batch write failed."));
+        }
+        sendEvent("ble.writeBatch", params);
+    }
+
+    /**
+     * Reads several characteristics back to back and sends all values with one ble.readMany event.
+     * @param items array of {serviceUuid, characteristicUuid}
+     * @param options optional: readId - echoed in the event, interval - ms between the end of a round
+     *   and the next one, the reads then repeat until stopReadMany is called or the peripheral disconnects
+     */
+    @ReactMethod
+    public void readMany(final String peripheralUuid, final ReadableArray items, final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleReadMany(peripheralUuid, items, options, null);
+            }
+        });
+    }
+
+    /**
+     * Promise variant of readMany, resolves with the results of a single round.
+     */
+    @ReactMethod
+    public void readManyAsync(final String peripheralUuid, final ReadableArray items, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleReadMany(peripheralUuid, items, null, createRequest(promise));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void stopReadMany(final String peripheralUuid, final String readId) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                RnbleConnection connection = getConnection(peripheralUuid);
+                Runnable poller = connection != null ? connection.pollers.remove(readId) : null;
+                if(poller != null) {handler.removeCallbacks(poller);}
+            }
+        });
+    }
+
+    private void handleReadMany(final String peripheralUuid, final ReadableArray items, final ReadableMap options, final GattRequest request) {
+        final RnbleConnection connection = getConnection(peripheralUuid);
+        if(deferUntilDiscovered(connection, new Runnable() {
+            @Override
+            public void run() {
+                handleReadMany(peripheralUuid, items, options, request);
+            }
+        })) {return;}
+        if(request != null && (connection == null || !connection.isConnected())) {
+            request.reject(GattOperation.ERROR_NOT_CONNECTED, "Peripheral not connected.");
+            return;
+        }
+        final String readId = RnbleOptions.getString(options, "readId", null);
+        final long interval = readId != null ? (long) RnbleOptions.getDouble(options, "interval", 0) : 0;
+        ReadBatch batch = new ReadBatch(peripheralUuid, readId, items, interval, request);
+        if(connection != null && interval > 0) {
+            batch.poller = new Runnable() {
+                @Override
+                public void run() {
+                    ReadBatch round = new ReadBatch(peripheralUuid, readId, items, interval, null);
+                    round.poller = this;
+                    startReadBatch(connection, round);
+                }
+            };
+            Runnable previous = connection.pollers.put(readId, batch.poller);
+            if(previous != null) {handler.removeCallbacks(previous);}
+        }
+        startReadBatch(connection, batch);
+    }
+
+    private void startReadBatch(RnbleConnection connection, ReadBatch batch) {
+        List<GattOperation> operations = new ArrayList<GattOperation>(batch.items.size());
+        for(int i = 0; i < batch.items.size(); i++) {
+            ReadableMap item = batch.items.getMap(i);
+            String serviceUuid = RnbleOptions.getString(item, "serviceUuid", "");
+            String characteristicUuid = RnbleOptions.getString(item, "characteristicUuid", "");
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUuid, characteristicUuid);
+            if(characteristic == null) {
+                Log.w(TAG, "readMany: characteristic " + characteristicUuid + " not found");
+                batch.statuses[i] = GattOperation.ERROR_NOT_FOUND;
+                continue;
+            }
+            batch.characteristics[i] = characteristic;
+            operations.add(batch.read(i));
+        }
+        batch.pendingReads = operations.size();
+        if(operations.isEmpty()) {
+            finishReadBatch(connection, batch);
+            return;
+        }
+        connection.queue.enqueueAll(operations);
+    }
+
+    private void onReadManyItem(RnbleConnection connection, GattOperation operation, int status, byte[] value) {
+        if(operation.readBatch.complete(operation.batchIndex, status, value)) {
+            finishReadBatch(connection, operation.readBatch);
+        }
+    }
+
+    private void finishReadBatch(RnbleConnection connection, ReadBatch batch) {
+        WritableArray results = Arguments.createArray();
+        for(int i = 0; i < batch.statuses.length; i++) {
+            ReadableMap item = batch.items.getMap(i);
+            WritableMap result = Arguments.createMap();
+            result.putString("serviceUuid", toNobleUuid(RnbleOptions.getString(item, "serviceUuid", "")));
+            result.putString("characteristicUuid", toNobleUuid(RnbleOptions.getString(item, "characteristicUuid", "")));
+            result.putInt("status", batch.statuses[i]);
+            if(batch.statuses[i] == BluetoothGatt.GATT_SUCCESS && batch.values[i] != null) {
+                result.putString("data", encodePayload(batch.values[i]));
+            } else {
+                result.putNull("data");
+            }
+            results.pushMap(result);
+        }
+        if(batch.request != null) {
+            batch.request.resolve(results);
+            return;
+        }
+
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", batch.peripheralUuid);
+        params.putString("readId", batch.readId);
+        params.putArray("results", results);
+        sendEvent("ble.readMany", params);
+
+        // the next round starts once this one is done, slow reads don't pile up
+        // stopReadMany or a newer readMany with the same id ends this poll
+        if(batch.poller != null && connection != null && connection.pollers.get(batch.readId) == batch.poller) {
+            handler.postDelayed(batch.poller, batch.interval);
+        }
+    }
+
+    /**
+     * Negotiates the ATT MTU of a connected peripheral. The result is sent with a ble.mtuChange event.
+     */
+    @ReactMethod
+    public void requestMtu(final String peripheralUuid, final int mtu) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleRequestMtu(peripheralUuid, mtu);
+            }
+        });
+    }
+
+    private void handleRequestMtu(String peripheralUuid, int mtu) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(connection == null || !connection.isConnected()) {
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", peripheralUuid);
+            params.putInt("mtu", RnbleConnection.DEFAULT_MTU);
+            params.putMap("error", createError(-1, "Peripheral not connected."));
+            sendEvent("ble.mtuChange", params);
+            return;
+        }
+        connection.queue.enqueue(GattOperation.requestMtu(Math.min(mtu, ConnectOptions.MAX_MTU)));
+    }
+
+    /**
+     * Requests "high", "balanced" or "lowPower" connection priority for a connected peripheral.
+     */
+    @ReactMethod
+    public void requestConnectionPriority(final String peripheralUuid, final String priority) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleRequestConnectionPriority(peripheralUuid, priority);
+            }
+        });
+    }
+
+    private void handleRequestConnectionPriority(String peripheralUuid, String priority) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        if(connection == null || connection.gatt == null) {return;}
+        int connectionPriority = ConnectOptions.parseConnectionPriority(priority);
+        if(connectionPriority >= 0) {
+            connection.gatt.requestConnectionPriority(connectionPriority);
+        }
+    }
+
+    /**
+     * Configures the GATT operation queues. Supported options: timeout (ms), maxRetries,
+     * retryDelay (ms) and maxQueueDepth. Missing options keep their current value.
+     */
+    @ReactMethod
+    public void setOperationQueueOptions(final ReadableMap options) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleSetOperationQueueOptions(options);
+            }
+        });
+    }
+
+    private void handleSetOperationQueueOptions(ReadableMap options) {
+        if(options == null) {return;}
+        if(options.hasKey("timeout")) {operationTimeout = (long) options.getDouble("timeout");}
+        if(options.hasKey("maxRetries")) {operationMaxRetries = options.getInt("maxRetries");}
+        if(options.hasKey("retryDelay")) {operationRetryDelay = (long) options.getDouble("retryDelay");}
+        if(options.hasKey("maxQueueDepth")) {operationQueueDepth = options.getInt("maxQueueDepth");}
+        if(options.hasKey("requestTimeout")) {requestTimeout = (long) options.getDouble("requestTimeout");}
+
+        for(RnbleConnection connection : connections.values()) {
+            connection.queue.configure(operationTimeout, operationMaxRetries, operationRetryDelay, operationQueueDepth);
+        }
+    }
+
+    /**
+     * Selects how characteristic values and advertisement data are encoded in events,
+     * "base64" (default) or "hex". A ble.payloadEncoding event marks the first event in the new
+     * encoding, the values batched so far are sent before it in the old one.
+     */
+    @ReactMethod
+    public void setPayloadEncoding(String encoding) {
+        final boolean hex = "hex".equals(encoding);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(pausedEvents != null) {
+                    // the held back events were encoded the old way, JS has to decode them first
+                    pendingHexPayloads = hex;
+                    return;
+                }
+                applyPayloadEncoding(hex);
+            }
+        });
+    }
+
+    private void applyPayloadEncoding(boolean hex) {
+        if(discoverBatcher != null) {discoverBatcher.flush();}
+        for(RnbleConnection connection : connections.values()) {
+            for(NotificationBuffer buffer : connection.notificationBuffers.values()) {
+                buffer.flush();
+            }
+        }
+        hexPayloads = hex;
+        WritableMap params = Arguments.createMap();
+        params.putString("encoding", hex ? "hex" : "base64");
+        sendEvent("ble.payloadEncoding", params);
+    }
+
+    /**
+     * Selects what happens while the app is in the background.
+     * @param options
+     *   background - "close" (default) closes the connections and pauses the scan, "keep" keeps the
+     *     connections and a low power scan, "service" does the same from a foreground service so the
+     *     process isn't killed
+     *   replay - events of the background period are sent on resume, "all" (default) in order,
+     *     "summary" only the latest one per peripheral and attribute, "none" sends them right away
+     *   maxBufferedEvents - default 500, the oldest events are dropped beyond it
+     *   notificationTitle, notificationText - notification of the foreground service
+     */
+    @ReactMethod
+    public void setLifecyclePolicy(ReadableMap options) {
+        final LifecycleOptions newOptions;
+        try {
+            newOptions = new LifecycleOptions(options);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "RNBLE setLifecyclePolicy - invalid options", e);
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                lifecycleOptions = newOptions;
+                scanScheduler.setKeepInBackground(newOptions.keepsConnections());
+            }
+        });
+    }
+
+    @Override
+    public void onHostResume() {
+        Log.d(TAG, "onHostResume");
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                // a scan paused in onHostPause is resumed
+                scanScheduler.setForeground(true);
+                stopService();
+                if(pausedEvents != null) {
+                    EventReplayBuffer events = pausedEvents;
+                    pausedEvents = null;
+                    events.replay(new EventReplayBuffer.Sink() {
+                        @Override
+                        public void replay(String eventName, WritableMap params) {
+                            emitEvent(eventName, params);
+                        }
+                    });
+                }
+                if(pendingHexPayloads != null) {
+                    applyPayloadEncoding(pendingHexPayloads);
+                    pendingHexPayloads = null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onHostPause() {
+        Log.v(TAG, "onHostPause");
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                // the scan keeps running in low power mode if scanInBackground or the lifecycle policy ask for it
+                scanScheduler.setForeground(false);
+                if(discoverBatcher != null) {discoverBatcher.flush();}
+                if(!lifecycleOptions.keepsConnections()) {
+                    closeConnections();
+                    return;
+                }
+                if(lifecycleOptions.buffersEvents() && pausedEvents == null) {
+                    pausedEvents = new EventReplayBuffer(lifecycleOptions.replay == LifecycleOptions.REPLAY_SUMMARY, lifecycleOptions.maxBufferedEvents);
+                }
+                if(lifecycleOptions.background == LifecycleOptions.BACKGROUND_SERVICE
+                        && (!connections.isEmpty() || scanScheduler.isScanRequested())) {
+                    RnbleService.start(context, lifecycleOptions.notificationTitle, lifecycleOptions.notificationText);
+                    serviceStarted = true;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onHostDestroy() {
+        Log.v(TAG, "onHostDestroy");
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                // the service keeps the React context alive for the next activity
+                if(serviceStarted) {return;}
+                scanning = false;
+                scanScheduler.stopNow();
+                proximityTracker = null;
+                closeConnections();
+            }
+        });
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handler.removeCallbacks(metricsRunnable);
+                stopService();
+                pausedEvents = null;
+                scanning = false;
+                scanScheduler.stopNow();
+                proximityTracker = null;
+                closeConnections();
+            }
+        });
+        // the posted cleanup still runs before the thread ends
+        bluetoothThread.quitSafely();
+    }
+
+    private GattRequest createRequest(Promise promise) {
+        return new GattRequest(handler, promise, requestTimeout);
+    }
+
+    private void rejectNotFound(RnbleConnection connection, GattRequest request) {
+        if(request == null) {return;}
+        if(connection == null || !connection.isConnected()) {
+            request.reject(GattOperation.ERROR_NOT_CONNECTED, "Peripheral not connected.");
+        } else {
+            request.reject(GattOperation.ERROR_NOT_FOUND, "Characteristic not found.");
+        }
+    }
+
+    private void stopService() {
+        if(!serviceStarted) {return;}
+        RnbleService.stop(context);
+        serviceStarted = false;
+    }
+
+    private RnbleConnection getConnection(String peripheralUuid) {
+        if(peripheralUuid == null) {return null;}
+        return connections.get(peripheralUuid.toUpperCase());
+    }
+
+    private AttributeIndex getAttributes(String peripheralUuid) {
+        RnbleConnection connection = getConnection(peripheralUuid);
+        return connection != null ? connection.attributes : null;
+    }
+
+    private BluetoothGattCharacteristic findCharacteristic(RnbleConnection connection, String serviceUuid, String characteristicUuid) {
+        if(connection == null || connection.gatt == null || connection.attributes == null || !connection.liveAttributes) {return null;}
+        return connection.attributes.getCharacteristic(RnbleUuids.parse(serviceUuid), RnbleUuids.parse(characteristicUuid));
+    }
+
+    private void closeConnections() {
+        for(RnbleConnection connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+    }
+
+    /**
+     * Holds back a read or write while the attributes of the connection come from the cache,
+     * the action runs once the live discovery has completed.
+     * @return true if the action was deferred
+     */
+    private boolean deferUntilDiscovered(RnbleConnection connection, Runnable action) {
+        if(connection == null || !connection.awaitingLiveAttributes()) {return false;}
+        connection.deferred.add(action);
+        return true;
+    }
+
+    private void runDeferred(RnbleConnection connection) {
+        List<Runnable> actions = new ArrayList<Runnable>(connection.deferred);
+        connection.deferred.clear();
+        for(Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Resolves with the counters and latency histograms collected since the last reset.
+     * Latencies are in ms, rates per second.
+     * @param reset start a new measurement period after taking the snapshot
+     */
+    @ReactMethod
+    public void getMetrics(final Boolean reset, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                WritableMap snapshot = metrics.toMap();
+                if(reset != null && reset) {metrics.reset();}
+                promise.resolve(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Resolves with a snapshot of the devices seen while scanning, closest first.
+     * Devices are only recorded while the scan runs with the trackDevices or reportChanges option.
+     * @param filter optional:
+     *   maxAge - ms since the device was last seen
+     *   minRssi - minimum RSSI of the last advertisement
+     *   name - prefix of the local name
+     *   serviceUuid - service uuid the device advertises
+     *   limit - maximum number of devices
+     */
+    @ReactMethod
+    public void getDevices(final ReadableMap filter, final Promise promise) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                promise.resolve(createDevicesSnapshot(filter));
+            }
+        });
+    }
+
+    private WritableMap createDevicesSnapshot(ReadableMap filter) {
+        long now = SystemClock.elapsedRealtime();
+        long wallClockOffset = System.currentTimeMillis() - now;
+        double maxAge = RnbleOptions.getDouble(filter, "maxAge", -1);
+        double minRssi = RnbleOptions.getDouble(filter, "minRssi", -Double.MAX_VALUE);
+        String name = RnbleOptions.getString(filter, "name", null);
+        UUID serviceUuid = RnbleUuids.parse(RnbleOptions.getString(filter, "serviceUuid", null));
+        ParcelUuid service = serviceUuid != null ? new ParcelUuid(serviceUuid) : null;
+        int limit = (int) RnbleOptions.getDouble(filter, "limit", Integer.MAX_VALUE);
+
+        List<DeviceRegistry.Device> matches = new ArrayList<DeviceRegistry.Device>();
+        for(DeviceRegistry.Device device : deviceRegistry.getDevices()) {
+            if(maxAge >= 0 && now - device.lastSeen > maxAge) {continue;}
+            if(device.rssi < minRssi) {continue;}
+            if(name != null && (device.name == null || !device.name.startsWith(name))) {continue;}
+            if(service != null) {
+                List<ParcelUuid> uuids = device.record != null ? device.record.getServiceUuids() : null;
+                if(uuids == null || !uuids.contains(service)) {continue;}
+            }
+            matches.add(device);
+        }
+        Collections.sort(matches, new Comparator<DeviceRegistry.Device>() {
+            @Override
+            public int compare(DeviceRegistry.Device a, DeviceRegistry.Device b) {
+                return b.rssi - a.rssi;
+            }
+        });
+
+        WritableArray devices = Arguments.createArray();
+        for(int i = 0; i < matches.size() && i < limit; i++) {
+            DeviceRegistry.Device device = matches.get(i);
+            WritableMap params = Arguments.createMap();
+            params.putString("id", device.address);
+            params.putString("name", device.name);
+            params.putInt("rssi", device.rssi);
+            params.putInt("rssiMin", device.rssiMin);
+            params.putInt("rssiMax", device.rssiMax);
+            params.putDouble("rssiMean", Math.round(device.rssiMean() * 10) / 10.0);
+            params.putInt("seenCount", device.seenCount);
+            params.putDouble("firstSeen", device.firstSeen + wallClockOffset);
+            params.putDouble("lastSeen", device.lastSeen + wallClockOffset);
+            params.putInt("advertisementHash", device.advertisementHash);
+            devices.pushMap(params);
+        }
+        WritableMap params = Arguments.createMap();
+        params.putArray("devices", devices);
+        params.putInt("total", deviceRegistry.size());
+        return params;
+    }
+
+    /**
+     * Sends a ble.metrics event every intervalMs, 0 stops the periodic events.
+     */
+    @ReactMethod
+    public void setMetricsInterval(final int intervalMs) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handler.removeCallbacks(metricsRunnable);
+                metricsInterval = intervalMs;
+                if(intervalMs > 0) {
+                    handler.postDelayed(metricsRunnable, intervalMs);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the cached attribute trees of a peripheral, or of all peripherals if peripheralUuid is null.
+     */
+    @ReactMethod
+    public void clearAttributeCache(String peripheralUuid) {
+        gattCache.clear(peripheralUuid != null ? peripheralUuid.toUpperCase() : null);
+    }
+
+    private void sendConnect(RnbleConnection connection) {
+        connection.connectPending = false;
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", connection.address);
+        params.putInt("mtu", connection.mtu);
+        if(connection.options.discoverAll && connection.attributes != null) {
+            params.putArray("services", createAttributeTree(connection.attributes));
+        }
+        sendEvent("ble.connect", params);
+    }
+
+    private WritableArray createProperties(int propertyBitmask) {
+        WritableArray properties = Arguments.createArray();
+        
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_BROADCAST) != 0){
+            properties.pushString("boradcast");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_READ) != 0){
+            properties.pushString("read");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0){
+            properties.pushString("writeWithoutResponse");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0){
+            properties.pushString("write");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0){
+           properties.pushString("notify");
+        }                                                
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0){
+            properties.pushString("indicaste");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_SIGNED_WRITE) != 0){
+            properties.pushString("authenticatedSignedWrites");
+        }
+
+        if((propertyBitmask & BluetoothGattCharacteristic.PROPERTY_EXTENDED_PROPS) != 0){
+            properties.pushString("extendedProperties");
+        }
+        return properties;
+    }
+
+    /**
+     * @return the whole attribute tree: services with their included service uuids and characteristics,
+     * characteristics with their properties and descriptor uuids
+     */
+    private WritableArray createAttributeTree(AttributeIndex attributes) {
+        WritableArray services = Arguments.createArray();
+        for(BluetoothGattService service : attributes.services) {
+            WritableArray includedServiceUuids = Arguments.createArray();
+            for(BluetoothGattService includedService : service.getIncludedServices()) {
+                includedServiceUuids.pushString(toNobleUuid(includedService.getUuid()));
+            }
+            WritableArray characteristics = Arguments.createArray();
+            for(BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                WritableArray descriptors = Arguments.createArray();
+                for(BluetoothGattDescriptor descriptor : characteristic.getDescriptors()) {
+                    descriptors.pushString(toNobleUuid(descriptor.getUuid()));
+                }
+                WritableMap characteristicObject = Arguments.createMap();
+                characteristicObject.putString("uuid", toNobleUuid(characteristic.getUuid()));
+                characteristicObject.putArray("properties", createProperties(characteristic.getProperties()));
+                characteristicObject.putArray("descriptors", descriptors);
+                characteristics.pushMap(characteristicObject);
+            }
+            WritableMap serviceObject = Arguments.createMap();
+            serviceObject.putString("uuid", toNobleUuid(service.getUuid()));
+            serviceObject.putString("type", service.getType() == BluetoothGattService.SERVICE_TYPE_PRIMARY ? "primary" : "secondary");
+            serviceObject.putArray("includedServiceUuids", includedServiceUuids);
+            serviceObject.putArray("characteristics", characteristics);
+            services.pushMap(serviceObject);
+        }
+        return services;
+    }
+
+    private WritableMap createAttributeParams(String peripheralUuid, BluetoothGattCharacteristic characteristic) {
+        return RnbleEvents.createAttributeParams(peripheralUuid, characteristic);
+    }
+
+    private WritableMap createError(int errorCode, String errorMessage) {
+        WritableMap error = Arguments.createMap();
+        error.putInt("erroCode", errorCode);
+        error.putString("errorMessage", errorMessage);
+        return error;
+    }
+
+    private String encodePayload(byte[] value) {
+        return RnbleEvents.encodePayload(value, hexPayloads);
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        if(pausedEvents != null) {
+            pausedEvents.add(eventName, params);
+            return;
+        }
+        emitEvent(eventName, params);
+    }
+
+    private void emitEvent(String eventName, WritableMap params) {
+        long start = System.nanoTime();
+        getReactApplicationContext()
+            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(eventName, params);
+        metrics.eventTime.recordSince(start);
+    }
+
+    private String stateToString(int state){
+        switch (state) {
+            case BluetoothAdapter.STATE_OFF:
+                return "poweredOff";
+            case BluetoothAdapter.STATE_TURNING_OFF:
+                return "turningOff";
+            case BluetoothAdapter.STATE_ON:
+                return "poweredOn";
+            case BluetoothAdapter.STATE_TURNING_ON:
+                return "turningOn";
+            default:
+                return "unknown";
+        }
+    }
+
+
+    // GATT callback and methods
+    // one callback instance per connection, events are routed to the connection they belong to
+    private class RnbleGattCallback extends BluetoothGattCallback {
+        private RNBLEModule rnbleModule;
+        private RnbleConnection connection;
+ 
+        public RnbleGattCallback(RNBLEModule rnbleModule, RnbleConnection connection) {
+            this.rnbleModule = rnbleModule;
+            this.connection = connection;
+        }
+
+        @Override
+        public void onConnectionStateChange(final BluetoothGatt gatt, final int status, final int newState) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleConnectionStateChange(gatt, status, newState);
+                }
+            });
+        }
+
+        private void handleConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
             BluetoothDevice remoteDevice = gatt.getDevice();
             String remoteAddress = remoteDevice.getAddress();
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", remoteAddress); //remote address used here instead of uuid, not converted to noble format
+
+            if (newState == BluetoothProfile.STATE_CONNECTED) {
+                Log.i(TAG, "Connected to GATT server. Discovering services.");
+                connection.state = RnbleConnection.STATE_CONNECTED;
+                connection.mtu = RnbleConnection.DEFAULT_MTU;
+                metrics.connectTime.recordSince(connection.connectStartedAt);
+                if(connection.options.connectionPriority >= 0) {
+                    gatt.requestConnectionPriority(connection.options.connectionPriority);
+                }
+                if(connection.isReconnecting() && connection.attributes != null && connection.liveAttributes) {
+                    if(connection.rediscovering) {
+                        // the new client knows no services yet, the queue is armed once the attributes are mapped
+                        gatt.discoverServices();
+                        return;
+                    }
+                    onReconnected(connection);
+                    return;
+                }
+                // arms the queue of a new link, or of a reconnect that needs a new discovery
+                connection.queue.setGatt(gatt);
+                connection.reconnectAttempts = 0;
+                // Attempts to discover services after successful connection.
+                gatt.discoverServices();
+                if(connection.cacheKey != null) {
+                    String tree = gattCache.get(connection.cacheKey);
+                    List<BluetoothGattService> services = tree != null ? GattCache.deserialize(tree) : null;
+                    if(services != null) {
+                        // discovery is answered from the cache, the live tree is compared in onServicesDiscovered
+                        Log.d(TAG, "Using cached attributes for " + connection.address);
+                        connection.cachedTree = tree;
+                        connection.attributes = new AttributeIndex(services);
+                        sendConnect(connection);
+                    }
+                }
+            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                boolean wasConnected = connection.state == RnbleConnection.STATE_CONNECTED;
+                connection.state = RnbleConnection.STATE_DISCONNECTED;
+                metrics.disconnects++;
+                if(connection.gatt == gatt){
+                    connection.queue.setGatt(null);
+                    connection.queue.clear();
+                }
+                // deliver what was received before the link dropped
+                for(NotificationBuffer buffer : connection.notificationBuffers.values()) {
+                    buffer.flush();
+                }
+                if(shouldReconnect(connection, gatt)) {
+                    scheduleReconnect(connection, gatt);
+                    // JS learns about the drop once, not about every failed attempt
+                    if(wasConnected) {
+                        params.putBoolean("reconnecting", true);
+                        rnbleModule.sendEvent("ble.disconnect", params);
+                    }
+                    return;
+                }
+                connection.deferred.clear();
+                connection.rediscovering = false;
+                connection.attributes = null;
+                connection.liveAttributes = false;
+                connection.subscriptions.clear();
+                connection.notificationBuffers.clear();
+                connection.stopPolling();
+                gatt.close();
+                if(connection.gatt == gatt){
+                    connection.gatt = null;
+                }
+                // a newer connection to the same peripheral may already be registered
+                connections.remove(connection.address, connection);
+                Log.i(TAG, "Disconnected from GATT server.");
+                rnbleModule.sendEvent("ble.disconnect", params);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(final BluetoothGatt gatt, final int status) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleServicesDiscovered(gatt, status);
+                }
+            });
+        }
+
+        private void handleServicesDiscovered(BluetoothGatt gatt, int status) {
+            Log.i(TAG, "onServicesDiscovered");
+            if(connection.rediscovering) {
+                onRediscovered(gatt, status);
+                return;
+            }
+            // the attributes came from the cache or the services changed, ble.connect was already sent
+            boolean refresh = connection.attributes != null && !connection.liveAttributes;
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                List<BluetoothGattService> services = gatt.getServices();
+                // after a Service Changed indication the subscriptions refer to the characteristics of the old discovery
+                boolean resubscribe = !connection.subscriptions.isEmpty();
+                remapAttributes(connection, new AttributeIndex(services));
+                connection.liveAttributes = true;
+                metrics.discoveryTime.recordSince(connection.connectStartedAt);
+                connection.connectStartedAt = 0;
+                watchServiceChanged(connection);
+                if(resubscribe) {
+                    resubscribe(connection);
+                }
+                if(connection.cacheKey != null) {
+                    onLiveAttributes(connection, services, refresh);
+                } else if(refresh) {
+                    sendServicesChange(connection);
+                }
+            } else {
+                Log.w(TAG, "onServicesDiscovered received: " + status);
+                if(refresh) {
+                    // the cached attributes can't be verified
+                    if(connection.cacheKey != null) {gattCache.remove(connection.cacheKey);}
+                    connection.attributes = null;
+                }
+            }
+  
+            connection.state = RnbleConnection.STATE_CONNECTED;
+            runDeferred(connection);
+
+            if (status == BluetoothGatt.GATT_SUCCESS && connection.options.mtu > RnbleConnection.DEFAULT_MTU) {
+                // ble.connect is sent once the MTU request completes, after a refresh the result is only sent as ble.mtuChange
+                connection.connectPending = !refresh;
+                connection.queue.enqueue(GattOperation.requestMtu(connection.options.mtu));
+                return;
+            }
+            if(!refresh) {
+                sendConnect(connection);
+            }
+        }
+
+        private boolean shouldReconnect(RnbleConnection connection, BluetoothGatt gatt) {
+            if(!connection.options.reconnect || connection.disconnectRequested || connection.gatt != gatt) {return false;}
+            // connect() may have replaced the connection in the meantime
+            if(connections.get(connection.address) != connection) {return false;}
+            int maxAttempts = connection.options.maxReconnectAttempts;
+            return maxAttempts <= 0 || connection.reconnectAttempts < maxAttempts;
+        }
+
+        private void scheduleReconnect(final RnbleConnection connection, BluetoothGatt gatt) {
+            final long delay = connection.options.reconnectDelay(connection.reconnectAttempts);
+            connection.reconnectAttempts++;
+            connection.state = RnbleConnection.STATE_CONNECTING;
+            // connect() on an existing client always reconnects in the background, direct attempts need a new
+            // client whose attributes have to be discovered again
+            connection.rediscovering = !connection.options.autoConnect;
+            if(connection.rediscovering) {
+                gatt.close();
+                connection.gatt = null;
+            }
+            Log.i(TAG, "Reconnecting to " + connection.address + " in " + delay + " ms, attempt " + connection.reconnectAttempts);
+            connection.reconnectRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    connection.reconnectRunnable = null;
+                    if(connection.disconnectRequested) {return;}
+                    connection.connectStartedAt = System.nanoTime();
+                    if(connection.gatt != null) {
+                        // the stack connects as soon as the peripheral is in range
+                        connection.gatt.connect();
+                    } else {
+                        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(connection.address);
+                        connection.gatt = device.connectGatt(context, false, RnbleGattCallback.this);
+                    }
+                    // the queue is armed again in onReconnected, operations queued until then wait for the link
+                }
+            };
+            handler.postDelayed(connection.reconnectRunnable, delay);
+
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", connection.address);
+            params.putInt("attempt", connection.reconnectAttempts);
+            params.putDouble("delay", delay);
+            rnbleModule.sendEvent("ble.reconnecting", params);
+        }
+
+        // a reconnect on a new client discovered the attributes, the old ones are mapped onto them
+        private void onRediscovered(BluetoothGatt gatt, int status) {
+            if(status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "onServicesDiscovered received: " + status + " after reconnecting");
+                // the reconnect goes on from the disconnect
+                gatt.disconnect();
+                return;
+            }
+            connection.rediscovering = false;
+            List<BluetoothGattService> services = gatt.getServices();
+            remapAttributes(connection, new AttributeIndex(services));
+            if(connection.cacheKey != null) {
+                onLiveAttributes(connection, services, true);
+            }
+            onReconnected(connection);
+        }
+
+        // the link is back, the attributes of the previous link are used without a new discovery
+        private void onReconnected(RnbleConnection connection) {
+            Log.i(TAG, "Reconnected to " + connection.address + " after " + connection.reconnectAttempts + " attempts");
+            connection.reconnectAttempts = 0;
+            connection.queue.setGatt(connection.gatt);
+            watchServiceChanged(connection);
+            resubscribe(connection);
+            runDeferred(connection);
+            if(connection.options.mtu > RnbleConnection.DEFAULT_MTU) {
+                connection.connectPending = true;
+                connection.queue.enqueue(GattOperation.requestMtu(connection.options.mtu));
+                return;
+            }
+            sendConnect(connection);
+        }
+
+        // enables the notifications of the subscribed characteristics on the peripheral again
+        private void resubscribe(RnbleConnection connection) {
+            for(BluetoothGattCharacteristic characteristic : connection.subscriptions) {
+                BluetoothGattDescriptor descriptor = characteristic.getDescriptor(UUID_CLIENT_CHARACTERISTIC_CONFIG);
+                connection.gatt.setCharacteristicNotification(characteristic, true);
+                if(descriptor == null) {continue;}
+                // bonded peripherals remember the subscription, the write is needed for the others
+                GattOperation operation = GattOperation.writeDescriptor(descriptor, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+                operation.notifyState = true;
+                connection.queue.enqueue(operation);
+            }
+        }
+
+        /**
+         * Replaces the attribute index. The subscriptions and notification buffers are moved to the
+         * characteristics of the new index, callbacks only carry the new objects. Characteristics that
+         * are gone are dropped.
+         */
+        private void remapAttributes(RnbleConnection connection, AttributeIndex attributes) {
+            List<BluetoothGattCharacteristic> subscriptions = new ArrayList<BluetoothGattCharacteristic>(connection.subscriptions);
+            connection.subscriptions.clear();
+            for(BluetoothGattCharacteristic characteristic : subscriptions) {
+                BluetoothGattCharacteristic current = findRediscovered(attributes, characteristic);
+                if(current != null) {
+                    connection.subscriptions.add(current);
+                } else {
+                    Log.i(TAG, "Subscribed characteristic " + characteristic.getUuid() + " is gone");
+                }
+            }
+            Map<BluetoothGattCharacteristic, NotificationBuffer> buffers = new HashMap<BluetoothGattCharacteristic, NotificationBuffer>(connection.notificationBuffers);
+            connection.notificationBuffers.clear();
+            for(Map.Entry<BluetoothGattCharacteristic, NotificationBuffer> entry : buffers.entrySet()) {
+                NotificationBuffer buffer = entry.getValue();
+                // values received before are sent for the characteristic they came from
+                buffer.flush();
+                BluetoothGattCharacteristic current = findRediscovered(attributes, entry.getKey());
+                if(current == null) {continue;}
+                buffer.characteristic = current;
+                connection.notificationBuffers.put(current, buffer);
+            }
+            connection.attributes = attributes;
+        }
+
+        private BluetoothGattCharacteristic findRediscovered(AttributeIndex attributes, BluetoothGattCharacteristic characteristic) {
+            BluetoothGattService service = characteristic.getService();
+            return service != null ? attributes.getCharacteristic(service.getUuid(), characteristic.getUuid()) : null;
+        }
+
+        private void watchServiceChanged(RnbleConnection connection) {
+            if(!connection.watchesServiceChanged()) {return;}
+            BluetoothGattCharacteristic serviceChanged = connection.attributes.getCharacteristic(UUID_GENERIC_ATTRIBUTE, UUID_SERVICE_CHANGED);
+            if(serviceChanged == null) {return;}
+            // routes the indication to onCharacteristicChanged
+            connection.gatt.setCharacteristicNotification(serviceChanged, true);
+            BluetoothGattDescriptor descriptor = serviceChanged.getDescriptor(UUID_CLIENT_CHARACTERISTIC_CONFIG);
+            if(descriptor == null) {return;}
+            // the stack enables the indication only for bonded peripherals
+            GattOperation operation = GattOperation.writeDescriptor(descriptor, BluetoothGattDescriptor.ENABLE_INDICATION_VALUE);
+            operation.internal = true;
+            connection.queue.enqueue(operation);
+        }
+
+        // stores the live tree and tells JS if the tree it got from the cache was out of date
+        private void onLiveAttributes(RnbleConnection connection, List<BluetoothGattService> services, boolean refresh) {
+            String tree = GattCache.serialize(services);
+            if(tree.equals(connection.cachedTree)) {return;}
+            gattCache.put(connection.cacheKey, tree);
+            connection.cachedTree = tree;
+            if(refresh) {
+                Log.d(TAG, "Attribute cache of " + connection.address + " was out of date");
+                sendServicesChange(connection);
+            }
+        }
+
+        private void sendServicesChange(RnbleConnection connection) {
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", connection.address);
+            rnbleModule.sendEvent("ble.servicesChange", params);
+        }
+
+        @Override
+        public void onMtuChanged(final BluetoothGatt gatt, final int mtu, final int status) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleMtuChanged(gatt, mtu, status);
+                }
+            });
+        }
+
+        private void handleMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            connection.queue.complete(GattOperation.REQUEST_MTU, null);
+            WritableMap params = Arguments.createMap();
+            params.putString("peripheralUuid", connection.address);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.i(TAG, "MTU changed to " + mtu);
+                connection.mtu = mtu;
+            } else {
+                Log.w(TAG, "onMtuChanged received: " + status);
+                params.putMap("error", createError(status, "MTU request failed."));
+            }
+            params.putInt("mtu", connection.mtu);
+            rnbleModule.sendEvent("ble.mtuChange", params);
+
+            if(connection.connectPending) {
+                sendConnect(connection);
+            }
+        }
+
+        @Override
+        public void onCharacteristicChanged(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
+            // the stack replaces the value with the next notification or read
+            final byte[] value = characteristic.getValue();
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleCharacteristicChanged(gatt, characteristic, value);
+                }
+            });
+        }
+
+        private void handleCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] characteristicValue) {
+            if(connection.watchesServiceChanged() && UUID_SERVICE_CHANGED.equals(characteristic.getUuid())) {
+                // the attribute tree changed, forget the cached one and discover again
+                Log.i(TAG, "Service Changed indication from " + connection.address);
+                if(connection.cacheKey != null) {gattCache.remove(connection.cacheKey);}
+                connection.cachedTree = null;
+                connection.liveAttributes = false;
+                gatt.discoverServices();
+                return;
+            }
+            metrics.notifications++;
+            NotificationBuffer buffer = connection.notificationBuffers.get(characteristic);
+            if(buffer != null && characteristicValue != null) {
+                // delivered with the next ble.dataBatch event
+                buffer.add(characteristicValue);
+                return;
+            }
+            if(characteristicValue != null) {
+                WritableMap params = createAttributeParams(connection.address, characteristic);
+                params.putString("data", encodePayload(characteristicValue));
+                params.putBoolean("isNotification", true);
+                rnbleModule.sendEvent("ble.data", params);
+            }
+        }
+
+        @Override
+        public void onCharacteristicRead(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            // the stack replaces the value with the next notification or read
+            final byte[] value = characteristic.getValue();
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleCharacteristicRead(gatt, characteristic, status, value);
+                }
+            });
+        }
 
-            params.putString("peripheralUuid", remoteAddress);
+        private void handleCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status, byte[] value) {
+            byte[] characteristicValue = null;
+            Boolean notification = false;            
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "!!! characteristic read!!!");
+                characteristicValue = value;
+            } else {
+                Log.w(TAG, "onCharacteristicRead received: " + status);
+            }
+            GattOperation operation = connection.queue.complete(GattOperation.READ_CHARACTERISTIC, characteristic);
+            if(operation != null) {
+                metrics.reads++;
+                metrics.readTime.recordSince(operation.createdAt);
+            }
+            if(operation != null && operation.readBatch != null) {
+                onReadManyItem(connection, operation, status, characteristicValue);
+                return;
+            }
+            if(operation != null && operation.request != null) {
+                if(status == BluetoothGatt.GATT_SUCCESS) {
+                    operation.request.resolve(encodePayload(characteristicValue));
+                } else {
+                    operation.request.reject(status, "Characteristic read failed.");
+                }
+                return;
+            }
 
-            params.putString("serviceUuid", toNobleUuid(characteristic.getService().getUuid().toString()));
-            params.putString("characteristicUuid", toNobleUuid(characteristic.getUuid().toString()));
-            params.putString("data", Arrays.toString(characteristicValue));
+            WritableMap params = createAttributeParams(connection.address, characteristic);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                params.putString("data", encodePayload(characteristicValue));
+            } else {
+                params.putMap("error", createError(status, "Characteristic read failed."));
+            }
             params.putBoolean("isNotification", notification);
             rnbleModule.sendEvent("ble.data", params);
         }
 
 
         @Override
-        public void onCharacteristicWrite (BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status){
+        public void onCharacteristicWrite(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleCharacteristicWrite(gatt, characteristic, status);
+                }
+            });
+        }
+
+        private void handleCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            GattOperation operation = connection.queue.complete(GattOperation.WRITE_CHARACTERISTIC, characteristic);
+            if(operation != null) {
+                metrics.writes++;
+                metrics.writeTime.recordSince(operation.createdAt);
+            }
+            if (operation != null && operation.stream != null) {
+                onWriteStreamChunk(connection, operation.stream, status);
+                return;
+            }
+            if (operation != null && operation.batch != null) {
+                onWriteBatchItem(connection, operation, status);
+                return;
+            }
+            if (operation != null && operation.request != null) {
+                if(status == BluetoothGatt.GATT_SUCCESS) {
+                    operation.request.resolve(null);
+                } else {
+                    operation.request.reject(status, "Characteristic write failed.");
+                }
+                return;
+            }
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.d(TAG, "characteristic written successfully");
-                WritableMap params = Arguments.createMap();
-
-                BluetoothDevice remoteDevice = gatt.getDevice();
-                String remoteAddress = remoteDevice.getAddress();
-
-                params.putString("peripheralUuid", remoteAddress);
-                params.putString("serviceUuid", toNobleUuid(characteristic.getService().getUuid().toString()));
-                params.putString("characteristicUuid", toNobleUuid(characteristic.getUuid().toString()));
+                WritableMap params = createAttributeParams(connection.address, characteristic);
 
                 Log.w(TAG, "sending ble.write callback");
                 rnbleModule.sendEvent("ble.write", params);
             } else {
-                Log.d(TAG, "onServicesDiscovered received: " + status);
+                Log.d(TAG, "onCharacteristicWrite received: " + status);
+                WritableMap params = createAttributeParams(connection.address, characteristic);
+                params.putMap("error", createError(status, "Characteristic write failed."));
+                rnbleModule.sendEvent("ble.write", params);
+            }
+        }
+
+        @Override
+        public void onReliableWriteCompleted(final BluetoothGatt gatt, final int status) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleReliableWriteCompleted(gatt, status);
+                }
+            });
+        }
+
+        private void handleReliableWriteCompleted(BluetoothGatt gatt, int status) {
+            GattOperation operation = connection.queue.complete(GattOperation.EXECUTE_RELIABLE_WRITE, null);
+            if(operation != null && operation.batch != null) {
+                onWriteBatchExecuted(connection, operation.batch, status);
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(final BluetoothGatt gatt, final BluetoothGattDescriptor descriptor, final int status) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleDescriptorWrite(gatt, descriptor, status);
+                }
+            });
+        }
+
+        private void handleDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            GattOperation operation = connection.queue.complete(GattOperation.WRITE_DESCRIPTOR, descriptor);
+            if(operation == null || !UUID_CLIENT_CHARACTERISTIC_CONFIG.equals(descriptor.getUuid())) {return;}
+            if(operation.internal) {
+                if(status != BluetoothGatt.GATT_SUCCESS) {Log.w(TAG, "Enabling the indication of " + descriptor.getCharacteristic().getUuid() + " failed: " + status);}
+                return;
+            }
+            applyNotifyState(connection, descriptor.getCharacteristic(), operation.notifyState, status == BluetoothGatt.GATT_SUCCESS);
+            if(operation.request != null) {
+                if(status == BluetoothGatt.GATT_SUCCESS) {
+                    operation.request.resolve(operation.notifyState);
+                } else {
+                    operation.request.reject(status, "Descriptor write failed.");
+                }
+                return;
+            }
+
+            WritableMap params = createAttributeParams(connection.address, descriptor.getCharacteristic());
+            params.putBoolean("state", operation.notifyState);
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "onDescriptorWrite received: " + status);
+                params.putMap("error", createError(status, "Descriptor write failed."));
             }
+            rnbleModule.sendEvent("ble.notify", params);
         }
     };    
 
 
+    // reports GATT operations that were dropped by a connection's queue
+    private class RnbleOperationListener implements GattOperationQueue.Listener {
+        private final String address;
+
+        public RnbleOperationListener(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void onOperationFailed(GattOperation operation, int errorCode, String errorMessage) {
+            Log.w(TAG, "GATT operation failed: " + errorMessage);
+            metrics.operationFailures++;
+            if(operation.internal) {return;}
+            if(operation.type == GattOperation.REQUEST_MTU) {
+                RnbleConnection connection = connections.get(address);
+                WritableMap params = Arguments.createMap();
+                params.putString("peripheralUuid", address);
+                params.putInt("mtu", connection != null ? connection.mtu : RnbleConnection.DEFAULT_MTU);
+                params.putMap("error", createError(errorCode, errorMessage));
+                sendEvent("ble.mtuChange", params);
+                // the link is usable with the default MTU
+                if(connection != null && connection.connectPending && errorCode != GattOperation.ERROR_DISCONNECTED) {
+                    sendConnect(connection);
+                }
+                return;
+            }
+            if(operation.stream != null) {
+                sendWriteStreamEvent(address, operation.stream, "ble.writeStreamComplete", createError(errorCode, errorMessage));
+                return;
+            }
+            if(operation.batch != null) {
+                RnbleConnection connection = connections.get(address);
+                WriteBatch batch = operation.batch;
+                if(batch.finished) {return;}
+                if(operation.type == GattOperation.EXECUTE_RELIABLE_WRITE) {
+                    batch.finish(errorCode);
+                    sendWriteBatchEvent(address, batch);
+                    return;
+                }
+                batch.statuses[operation.batchIndex] = errorCode;
+                batch.pendingWrites--;
+                if(batch.reliable || batch.pendingWrites == 0) {
+                    if(batch.reliable && connection != null && connection.gatt != null) {
+                        connection.gatt.abortReliableWrite();
+                    }
+                    batch.finish(GattOperation.ERROR_ABORTED);
+                    sendWriteBatchEvent(address, batch);
+                }
+                return;
+            }
+            if(operation.readBatch != null) {
+                onReadManyItem(connections.get(address), operation, errorCode, null);
+                return;
+            }
+            if(operation.type == GattOperation.WRITE_DESCRIPTOR && UUID_CLIENT_CHARACTERISTIC_CONFIG.equals(operation.descriptor.getUuid())) {
+                applyNotifyState(connections.get(address), operation.characteristic, operation.notifyState, false);
+            }
+            if(operation.request != null) {
+                operation.request.reject(errorCode, errorMessage);
+                return;
+            }
+            WritableMap params = createAttributeParams(address, operation.characteristic);
+            params.putMap("error", createError(errorCode, errorMessage));
+
+            switch (operation.type) {
+                case GattOperation.READ_CHARACTERISTIC:
+                    params.putBoolean("isNotification", false);
+                    sendEvent("ble.data", params);
+                    break;
+                case GattOperation.WRITE_CHARACTERISTIC:
+                    sendEvent("ble.write", params);
+                    break;
+                case GattOperation.WRITE_DESCRIPTOR:
+                    params.putBoolean("state", operation.notifyState);
+                    sendEvent("ble.notify", params);
+                    break;
+            }
+        }
+    }
+
      private String toNobleUuid(String uuid) {
-        String result = uuid.replaceAll("[\\s\\-()]", "");
-        return result.toLowerCase();
+        return RnbleUuids.toNoble(uuid);
      }
 
+     private String toNobleUuid(UUID uuid) {
+        return RnbleUuids.toNoble(uuid);
+     }
+
+    private void trackProximity(ScanResult result, String address) {
+        ScanRecord record = result.getScanRecord();
+        int measuredPower = record != null ? BeaconDecoder.measuredPower(record) : Integer.MIN_VALUE;
+        ProximityTracker.Device device = proximityTracker.update(address, result.getRssi(), measuredPower, SystemClock.elapsedRealtime());
+        if(device != null) {
+            sendProximity(device);
+        }
+    }
+
+    private void sendProximity(ProximityTracker.Device device) {
+        metrics.proximityChanges++;
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", device.address);
+        params.putInt("zone", device.zone);
+        params.putInt("previousZone", device.previousZone);
+        params.putDouble("rssi", Math.round(device.rssi * 10) / 10.0);
+        double distance = proximityTracker.distance(device);
+        if(distance >= 0) {
+            params.putDouble("distance", Math.round(distance * 100) / 100.0);
+        } else {
+            params.putNull("distance");
+        }
+        sendEvent("ble.proximity", params);
+    }
+
+    // sends the values collected by a NotificationBuffer as one ble.dataBatch event
+    private class NotificationBatchSink implements NotificationBuffer.Sink {
+        private final String address;
+
+        public NotificationBatchSink(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void sendNotifications(NotificationBuffer buffer, byte[][] values, long[] timestamps, int dropped) {
+            // the buffer keeps ms since boot, JS gets wall clock times like the getDevices timestamps
+            long wallClockOffset = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+            WritableArray data = Arguments.createArray();
+            WritableArray times = Arguments.createArray();
+            for(int i = 0; i < values.length; i++) {
+                data.pushString(encodePayload(values[i]));
+                times.pushDouble(timestamps[i] + wallClockOffset);
+            }
+            WritableMap params = createAttributeParams(address, buffer.characteristic);
+            params.putArray("data", data);
+            params.putArray("timestamps", times);
+            params.putInt("dropped", dropped);
+            params.putDouble("totalDropped", buffer.totalDropped());
+            sendEvent("ble.dataBatch", params);
+        }
+    }
+
+    private class DiscoverBatchSink implements EventBatcher.Sink {
+        @Override
+        public void sendBatch(WritableArray items) {
+            WritableMap params = Arguments.createMap();
+            params.putArray("peripherals", items);
+            sendEvent("ble.discoverBatch", params);
+        }
+    }
+
     //RnbleScanCallback scan callback
     private class RnbleScanCallback extends ScanCallback {
         private RNBLEModule rnbleModule;
@@ -661,34 +2431,56 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
 
 
         @Override
-        public void onBatchScanResults(List<ScanResult> results) {
+        public void onBatchScanResults(final List<ScanResult> results) {
             super.onBatchScanResults(results);
-            for (ScanResult result : results) {
-                processScanResult(result);
-            }
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // results delayed by the controller (reportDelay) go through the same filtering
+                    for (ScanResult result : results) {
+                        handleScanResult(result);
+                    }
+                }
+            });
         }
 
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
+        public void onScanResult(int callbackType, final ScanResult result) {
+            super.onScanResult(callbackType, result);
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    handleScanResult(result);
+                }
+            });
+        }
+
+        private void handleScanResult(ScanResult result) {
+            if(!scanning) {return;}
+            scanScheduler.onDiscovery();
+            metrics.scanResults++;
+            // BluetoothDevice keeps the address string it was created with, reading it once is enough
+            String address = result.getDevice().getAddress();
+            // proximity sees every advertisement, duplicates included
+            if(proximityTracker != null) {
+                trackProximity(result, address);
+            }
             boolean isDuplicate = false;
+            // hashing the advertisement is only worth it if the registry is used
+            boolean changed = scanOptions.trackDevices
+                    && deviceRegistry.update(address, result.getRssi(), result.getScanRecord(), SystemClock.elapsedRealtime());
 
             //filter out duplicate entries if requested
-            if(!rnbleModule.allowDuplicates){                
-                for(String s : scannedDeviceAddresses){
-                    BluetoothDevice device = result.getDevice();
-                    String address = device.getAddress();
-
-                    if(s.equals(address)) {
-                       isDuplicate = true;
-                       break;
-                    }
-                }
+            if(scanOptions.reportChanges) {
+                isDuplicate = !changed;
+            } else if(!rnbleModule.allowDuplicates){                
+                isDuplicate = !scanDeduplicator.shouldReport(address, SystemClock.elapsedRealtime());
             }
 
             if(!isDuplicate){  
-                scannedDeviceAddresses.add(result.getDevice().getAddress());
-                super.onScanResult(callbackType, result);
-                processScanResult(result);
+                processScanResult(result, address);
+            } else {
+                metrics.scanDuplicates++;
             }
         }
 
@@ -698,80 +2490,14 @@ class RNBLEModule extends ReactContextBaseJavaModule implements LifecycleEventLi
             Log.d(TAG, "Scan failed with error: " + errorCode);
         }
 
-        private void processScanResult(ScanResult scanResult) {
-
-            if(scanResult == null) {return;}
-
-            ScanRecord record = scanResult.getScanRecord();
-            BluetoothDevice device = scanResult.getDevice();
-
-            if(record != null){
-                WritableMap params = Arguments.createMap();
-                WritableMap advertisement = Arguments.createMap();
-
-                //add service uuids to advertisement map
-                WritableArray serviceUuids = Arguments.createArray();
-                List<ParcelUuid> uuids = record.getServiceUuids();
-                if(uuids != null){
-                   for(ParcelUuid uuid : uuids){
-                        serviceUuids.pushString(toNobleUuid(uuid.toString()));
-                    }
-                }
-    
-                advertisement.putArray("serviceUuids", serviceUuids);
-
-                //add serviceData array to advetisement map
-                WritableArray serviceData = Arguments.createArray();
-                WritableMap serviceDataMap = Arguments.createMap();
-
-                if(uuids != null) {
-                    for(ParcelUuid uuid : uuids){
-                        byte[] data = record.getServiceData(uuid);
-                        if(uuid != null && data != null){
-                            serviceDataMap.putString("uuid", toNobleUuid(uuid.toString()));
-                            serviceDataMap.putString("data", Arrays.toString(data));
-                            serviceData.pushMap(serviceDataMap);
-                        }
-                    }
-                }
-                advertisement.putArray("serviceData", serviceData);
-
-                //add manufacturer data to advertisement map
-                byte[] manufacturerData = null;
-                if(record.getManufacturerSpecificData() != null){
-                    manufacturerData = record.getManufacturerSpecificData().valueAt(0);
-                }
-                if(manufacturerData != null){
-                    advertisement.putString("manufacturerData", Arrays.toString(manufacturerData));
-                } else {
-                    advertisement.putNull("manufacturerData");
-                }
-
-                //add local name to advertisement map
-                advertisement.putString("localName", record.getDeviceName());
+        private void processScanResult(ScanResult scanResult, String address) {
+            WritableMap params = RnbleEvents.createDiscoverParams(scanResult, address, hexPayloads);
+            if(params == null) {return;}
 
-                //add tx power level to advertisement map
-                advertisement.putInt("txPowerLevel", record.getTxPowerLevel());
-
-                params.putMap("advertisement", advertisement);
-
-                //add rssi to params
-                params.putInt("rssi", scanResult.getRssi());
-
-                // add id to params
-                params.putString("id", device.getAddress());
-
-                // add address to params
-                params.putString("address", device.getAddress());
-
-                // add address type to params
-                params.putString("addressType", "unknown");
-
-                //add connectable to params
-                int flags = record.getAdvertiseFlags();
-                params.putBoolean("connectable", (flags & 2) == 2); //TODO: double check this to ensure it is correct
-
-                Log.d(TAG, params.toString());
+            EventBatcher batcher = rnbleModule.discoverBatcher;
+            if(batcher != null) {
+                batcher.add(params);
+            } else {
                 rnbleModule.sendEvent("ble.discover", params);
             }
         }
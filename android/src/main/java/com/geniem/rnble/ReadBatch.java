@@ -0,0 +1,91 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.facebook.react.bridge.ReadableArray;
+
+import java.util.Arrays;
+
+/**
+ * A list of characteristic reads requested with one readMany() call. The reads are queued back
+ * to back and the values and statuses of all items are reported together once the last read
+ * has completed.
+ */
+class ReadBatch {
+    // status of an item that hasn't completed yet
+    static final int PENDING = Integer.MIN_VALUE;
+
+    final String peripheralUuid;
+    final String readId;
+    // ms until the next round of a periodic readMany(), 0 for a single round
+    final long interval;
+    final BluetoothGattCharacteristic[] characteristics;
+    final byte[][] values;
+    final int[] statuses;
+    // the items of the readMany() call, used to describe the results
+    final ReadableArray items;
+    // set by readManyAsync, the results settle it instead of a ble.readMany event
+    final GattRequest request;
+    // schedules the next round of a periodic readMany()
+    Runnable poller;
+    int pendingReads;
+
+    ReadBatch(String peripheralUuid, String readId, ReadableArray items, long interval, GattRequest request) {
+        int size = items.size();
+        this.peripheralUuid = peripheralUuid;
+        this.readId = readId;
+        this.interval = interval;
+        this.items = items;
+        this.request = request;
+        this.characteristics = new BluetoothGattCharacteristic[size];
+        this.values = new byte[size][];
+        this.statuses = new int[size];
+        Arrays.fill(statuses, PENDING);
+    }
+
+    GattOperation read(int index) {
+        GattOperation operation = GattOperation.read(characteristics[index]);
+        operation.readBatch = this;
+        operation.batchIndex = index;
+        return operation;
+    }
+
+    /**
+     * Records the result of an item.
+     * @return true if this was the last pending item
+     */
+    boolean complete(int index, int status, byte[] value) {
+        if(statuses[index] != PENDING) {return false;}
+        statuses[index] = status;
+        values[index] = value;
+        pendingReads--;
+        return pendingReads == 0;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of a single peripheral link. RNBLEModule keeps one of these per
+ * peripheral address so that several peripherals can be connected at the same time.
+ * Only used on the module's Bluetooth thread.
+ */
+class RnbleConnection {
+    static final int STATE_DISCONNECTED = 0;
+    static final int STATE_CONNECTING = 1;
+    static final int STATE_CONNECTED = 2;
+
+    static final int DEFAULT_MTU = 23;
+
+    final String address;
+    BluetoothGatt gatt;
+    int state = STATE_DISCONNECTED;
+    AttributeIndex attributes;
+    // false while attributes come from the GattCache and the live discovery is still running
+    boolean liveAttributes;
+    // GattCache key, null if the attribute tree isn't cached
+    String cacheKey;
+    // serialized tree the attributes were built from
+    String cachedTree;
+    // reads and writes requested before the live attributes were known
+    final List<Runnable> deferred = new ArrayList<Runnable>();
+    // ATT MTU of the link, a write can carry mtu - 3 bytes
+    int mtu = DEFAULT_MTU;
+    ConnectOptions options;
+    // set while ble.connect waits for the MTU negotiation
+    boolean connectPending;
+    // System.nanoTime() of the connect() call, 0 once services were discovered
+    long connectStartedAt;
+    final GattOperationQueue queue;
+    // characteristics with notifications enabled, subscribed again after a reconnect
+    final Set<BluetoothGattCharacteristic> subscriptions = new HashSet<BluetoothGattCharacteristic>();
+    // set by disconnect(), the link is not reconnected after it drops
+    boolean disconnectRequested;
+    int reconnectAttempts;
+    Runnable reconnectRunnable;
+    // set while a reconnect uses a new GATT client, the attributes are mapped onto its discovery before they are used
+    boolean rediscovering;
+    private final Handler handler;
+    // periodic readMany() rounds by read id
+    final Map<String, Runnable> pollers = new HashMap<String, Runnable>();
+    // notification batching per subscribed characteristic
+    final Map<BluetoothGattCharacteristic, NotificationBuffer> notificationBuffers = new HashMap<BluetoothGattCharacteristic, NotificationBuffer>();
+
+    RnbleConnection(String address, Handler handler, GattOperationQueue.Listener listener) {
+        this.address = address;
+        this.handler = handler;
+        this.queue = new GattOperationQueue(handler, listener);
+    }
+
+    boolean isConnected() {
+        return gatt != null && state == STATE_CONNECTED;
+    }
+
+    boolean isReconnecting() {
+        return reconnectAttempts > 0;
+    }
+
+    // the Service Changed indication is only relevant while attributes outlive the discovery that produced them
+    boolean watchesServiceChanged() {
+        return cacheKey != null || options.reconnect;
+    }
+
+    /**
+     * @return true if the attributes came from the cache or belong to a replaced GATT client and
+     * can't be used for reads and writes yet
+     */
+    boolean awaitingLiveAttributes() {
+        return rediscovering || isConnected() && attributes != null && !liveAttributes;
+    }
+
+    void stopPolling() {
+        for(Runnable poller : pollers.values()) {
+            handler.removeCallbacks(poller);
+        }
+        pollers.clear();
+    }
+
+    /**
+     * Disconnects and releases the GATT client of this connection.
+     */
+    void close() {
+        if(reconnectRunnable != null) {
+            handler.removeCallbacks(reconnectRunnable);
+            reconnectRunnable = null;
+        }
+        queue.setGatt(null);
+        queue.clear();
+        for(NotificationBuffer buffer : notificationBuffers.values()) {
+            buffer.cancel();
+        }
+        notificationBuffers.clear();
+        deferred.clear();
+        subscriptions.clear();
+        stopPolling();
+        if(gatt != null) {
+            gatt.disconnect();
+            gatt.close();
+            gatt = null;
+        }
+        state = STATE_DISCONNECTED;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.os.ParcelUuid;
+import android.util.Base64;
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the maps of the high rate events, ble.discover and ble.data. Kept apart from the module
+ * so the benchmarks can run them on a plain JVM.
+ */
+final class RnbleEvents {
+    private RnbleEvents() {}
+
+    /**
+     * @return the value as base64, or as lowercase hex if hex is set
+     */
+    static String encodePayload(byte[] value, boolean hex) {
+        if(!hex) {
+            return Base64.encodeToString(value, Base64.NO_WRAP);
+        }
+        return RnbleHex.toHex(value);
+    }
+
+    static WritableMap createAttributeParams(String peripheralUuid, BluetoothGattCharacteristic characteristic) {
+        WritableMap params = Arguments.createMap();
+        params.putString("peripheralUuid", peripheralUuid);
+        params.putString("serviceUuid", RnbleUuids.toNoble(characteristic.getService().getUuid()));
+        params.putString("characteristicUuid", RnbleUuids.toNoble(characteristic.getUuid()));
+        return params;
+    }
+
+    /**
+     * @param address address of the scan result's device, read once per result by the caller
+     * @return the ble.discover params of the scan result, or null if it carries no scan record
+     */
+    static WritableMap createDiscoverParams(ScanResult scanResult, String address, boolean hex) {
+        ScanRecord record = scanResult.getScanRecord();
+        if(record == null) {return null;}
+
+        WritableMap params = Arguments.createMap();
+        WritableMap advertisement = Arguments.createMap();
+
+        //add service uuids to advertisement map
+        WritableArray serviceUuids = Arguments.createArray();
+        List<ParcelUuid> uuids = record.getServiceUuids();
+        if(uuids != null){
+            for(ParcelUuid uuid : uuids){
+                serviceUuids.pushString(RnbleUuids.toNoble(uuid.getUuid()));
+            }
+        }
+
+        advertisement.putArray("serviceUuids", serviceUuids);
+
+        //add serviceData array to advetisement map, service data is often sent without listing the uuid
+        WritableArray serviceData = Arguments.createArray();
+        Map<ParcelUuid, byte[]> serviceDataEntries = record.getServiceData();
+        if(serviceDataEntries != null) {
+            for(Map.Entry<ParcelUuid, byte[]> entry : serviceDataEntries.entrySet()){
+                if(entry.getKey() != null && entry.getValue() != null){
+                    WritableMap serviceDataMap = Arguments.createMap();
+                    serviceDataMap.putString("uuid", RnbleUuids.toNoble(entry.getKey().getUuid()));
+                    serviceDataMap.putString("data", encodePayload(entry.getValue(), hex));
+                    serviceData.pushMap(serviceDataMap);
+                }
+            }
+        }
+        advertisement.putArray("serviceData", serviceData);
+
+        //add manufacturer data to advertisement map, manufacturerData keeps the first entry without the company id
+        SparseArray<byte[]> manufacturerEntries = record.getManufacturerSpecificData();
+        WritableArray manufacturerDataList = Arguments.createArray();
+        byte[] manufacturerData = null;
+        if(manufacturerEntries != null){
+            for(int i = 0; i < manufacturerEntries.size(); i++){
+                byte[] data = manufacturerEntries.valueAt(i);
+                if(data == null) {continue;}
+                if(manufacturerData == null) {manufacturerData = data;}
+                WritableMap manufacturerDataMap = Arguments.createMap();
+                manufacturerDataMap.putInt("companyId", manufacturerEntries.keyAt(i));
+                manufacturerDataMap.putString("data", encodePayload(data, hex));
+                manufacturerDataList.pushMap(manufacturerDataMap);
+            }
+        }
+        if(manufacturerData != null){
+            advertisement.putString("manufacturerData", encodePayload(manufacturerData, hex));
+        } else {
+            advertisement.putNull("manufacturerData");
+        }
+        advertisement.putArray("manufacturerDataList", manufacturerDataList);
+
+        //add decoded Eddystone or iBeacon fields to advertisement map
+        WritableMap beacon = BeaconDecoder.decode(record);
+        if(beacon != null){
+            advertisement.putMap("beacon", beacon);
+        } else {
+            advertisement.putNull("beacon");
+        }
+
+        //add local name to advertisement map
+        advertisement.putString("localName", record.getDeviceName());
+
+        //add tx power level to advertisement map
+        advertisement.putInt("txPowerLevel", record.getTxPowerLevel());
+
+        params.putMap("advertisement", advertisement);
+
+        //add rssi to params
+        params.putInt("rssi", scanResult.getRssi());
+
+        // add id to params
+        params.putString("id", address);
+
+        // add address to params
+        params.putString("address", address);
+
+        // add address type to params
+        params.putString("addressType", "unknown");
+
+        //add connectable to params
+        int flags = record.getAdvertiseFlags();
+        params.putBoolean("connectable", (flags & 2) == 2); //TODO: double check this to ensure it is correct
+
+        return params;
+    }
+}
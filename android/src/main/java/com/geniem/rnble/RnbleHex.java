@@ -0,0 +1,63 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+/**
+ * Lowercase hex encoding shared by the payload, uuid and beacon formatting.
+ */
+final class RnbleHex {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private RnbleHex() {}
+
+    static String toHex(byte[] data) {
+        return toHex(data, 0, data.length);
+    }
+
+    /**
+     * @return length bytes of data from offset as two hex digits each
+     */
+    static String toHex(byte[] data, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for(int i = 0; i < length; i++) {
+            chars[i * 2] = HEX_DIGITS[(data[offset + i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_DIGITS[data[offset + i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Writes the value as 16 hex digits to chars, most significant digit first.
+     */
+    static void writeHex(char[] chars, int offset, long value) {
+        for(int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Counters and latency histograms of the module. Recording is a few array and field updates,
+ * the values are converted to a map only when getMetrics() is called.
+ */
+class RnbleMetrics {
+    // upper bounds of the histogram buckets in microseconds, the last bucket collects the rest
+    static final long[] BUCKET_BOUNDS_US = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000,
+        100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000
+    };
+
+    /**
+     * Fixed bucket latency histogram. Only used on the module's Bluetooth thread.
+     */
+    static class Histogram {
+        private final long[] buckets = new long[BUCKET_BOUNDS_US.length + 1];
+        private long count;
+        private long sumUs;
+        private long maxUs;
+
+        void record(long nanos) {
+            long us = nanos / 1000;
+            int bucket = 0;
+            while(bucket < BUCKET_BOUNDS_US.length && us > BUCKET_BOUNDS_US[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            count++;
+            sumUs += us;
+            if(us > maxUs) {maxUs = us;}
+        }
+
+        /**
+         * Records the time elapsed since startNanos, a start of 0 means there is nothing to record.
+         */
+        void recordSince(long startNanos) {
+            if(startNanos != 0) {record(System.nanoTime() - startNanos);}
+        }
+
+        // upper bound of the bucket that holds the given fraction of the values, in ms
+        private double percentile(double fraction) {
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for(int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if(seen >= rank) {
+                    return (i < BUCKET_BOUNDS_US.length ? BUCKET_BOUNDS_US[i] : maxUs) / 1000.0;
+                }
+            }
+            return maxUs / 1000.0;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+            map.putDouble("count", count);
+            map.putDouble("mean", count > 0 ? sumUs / 1000.0 / count : 0);
+            map.putDouble("max", maxUs / 1000.0);
+            map.putDouble("p50", count > 0 ? percentile(0.5) : 0);
+            map.putDouble("p90", count > 0 ? percentile(0.9) : 0);
+            map.putDouble("p99", count > 0 ? percentile(0.99) : 0);
+            WritableArray counts = Arguments.createArray();
+            for(long bucket : buckets) {
+                counts.pushDouble(bucket);
+            }
+            map.putArray("buckets", counts);
+            return map;
+        }
+
+        void reset() {
+            for(int i = 0; i < buckets.length; i++) {
+                buckets[i] = 0;
+            }
+            count = 0;
+            sumUs = 0;
+            maxUs = 0;
+        }
+    }
+
+    // connect() to link up, and connect() to services discovered
+    final Histogram connectTime = new Histogram();
+    final Histogram discoveryTime = new Histogram();
+    // queued read / write to its GATT callback
+    final Histogram readTime = new Histogram();
+    final Histogram writeTime = new Histogram();
+    // cost of handing an event over to the bridge
+    final Histogram eventTime = new Histogram();
+
+    // counters are only updated on the module's Bluetooth thread, events are counted with eventTime
+    long connects;
+    long disconnects;
+    long reads;
+    long writes;
+    long notifications;
+    long operationFailures;
+    long scanResults;
+    long scanDuplicates;
+    long proximityChanges;
+
+    private long startedAt = System.nanoTime();
+
+    /**
+     * @return the metrics collected since the last reset, rates are per second
+     */
+    WritableMap toMap() {
+        double seconds = Math.max(System.nanoTime() - startedAt, 1) / 1e9;
+
+        WritableMap counters = Arguments.createMap();
+        counters.putDouble("connects", connects);
+        counters.putDouble("disconnects", disconnects);
+        counters.putDouble("reads", reads);
+        counters.putDouble("writes", writes);
+        counters.putDouble("notifications", notifications);
+        counters.putDouble("operationFailures", operationFailures);
+        counters.putDouble("scanResults", scanResults);
+        counters.putDouble("scanDuplicates", scanDuplicates);
+        counters.putDouble("proximityChanges", proximityChanges);
+
+        WritableMap rates = Arguments.createMap();
+        rates.putDouble("notifications", notifications / seconds);
+        rates.putDouble("scanResults", scanResults / seconds);
+        rates.putDouble("duplicateHitRate", scanResults > 0 ? (double) scanDuplicates / scanResults : 0);
+
+        WritableMap histograms = Arguments.createMap();
+        histograms.putMap("connect", connectTime.toMap());
+        histograms.putMap("discovery", discoveryTime.toMap());
+        histograms.putMap("read", readTime.toMap());
+        histograms.putMap("write", writeTime.toMap());
+        histograms.putMap("event", eventTime.toMap());
+
+        WritableArray bounds = Arguments.createArray();
+        for(long bound : BUCKET_BOUNDS_US) {
+            bounds.pushDouble(bound / 1000.0);
+        }
+
+        WritableMap metrics = Arguments.createMap();
+        metrics.putDouble("duration", seconds * 1000);
+        metrics.putMap("counters", counters);
+        metrics.putMap("rates", rates);
+        metrics.putMap("histograms", histograms);
+        metrics.putArray("bucketBounds", bounds);
+        return metrics;
+    }
+
+    void reset() {
+        connectTime.reset();
+        discoveryTime.reset();
+        readTime.reset();
+        writeTime.reset();
+        eventTime.reset();
+        connects = 0;
+        disconnects = 0;
+        reads = 0;
+        writes = 0;
+        notifications = 0;
+        operationFailures = 0;
+        scanResults = 0;
+        scanDuplicates = 0;
+        proximityChanges = 0;
+        startedAt = System.nanoTime();
+    }
+}
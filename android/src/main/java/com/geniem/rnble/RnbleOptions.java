@@ -0,0 +1,59 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.util.Base64;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Helpers for reading optional values from option maps passed from JS.
+ */
+final class RnbleOptions {
+    private RnbleOptions() {}
+
+    static double getDouble(ReadableMap options, String key, double defaultValue) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getDouble(key) : defaultValue;
+    }
+
+    static String getString(ReadableMap options, String key, String defaultValue) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : defaultValue;
+    }
+
+    static boolean getBoolean(ReadableMap options, String key, boolean defaultValue) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getBoolean(key) : defaultValue;
+    }
+
+    /**
+     * @return the base64 decoded value of the key or null if the key is missing
+     */
+    static byte[] getBytes(ReadableMap options, String key) {
+        String value = getString(options, key, null);
+        return value != null ? Base64.decode(value, Base64.DEFAULT) : null;
+    }
+}
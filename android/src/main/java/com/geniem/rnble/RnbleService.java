@@ -0,0 +1,88 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.IBinder;
+
+/**
+ * Foreground service that keeps the process, and with it the connections and scans of
+ * RNBLEModule, alive while the app is in the background. The service owns no Bluetooth state,
+ * it only holds the notification the platform requires for running in the foreground.
+ */
+public class RnbleService extends Service {
+    private static final int NOTIFICATION_ID = 0x424c45;
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_TEXT = "text";
+
+    static void start(Context context, String title, String text) {
+        Intent intent = new Intent(context, RnbleService.class);
+        intent.putExtra(EXTRA_TITLE, title);
+        intent.putExtra(EXTRA_TEXT, text);
+        context.startService(intent);
+    }
+
+    static void stop(Context context) {
+        context.stopService(new Intent(context, RnbleService.class));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if(intent == null) {
+            // restarted after the process was killed, the module and its connections are gone
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        Notification.Builder builder = new Notification.Builder(this)
+            .setContentTitle(intent.getStringExtra(EXTRA_TITLE))
+            .setContentText(intent.getStringExtra(EXTRA_TEXT))
+            .setSmallIcon(getApplicationInfo().icon)
+            .setOngoing(true);
+        Intent launchIntent = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        if(launchIntent != null) {
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, launchIntent, 0));
+        }
+        startForeground(NOTIFICATION_ID, builder.build());
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopForeground(true);
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UUID helpers shared by the module. UUID strings coming from JS are parsed once and cached,
+ * so repeated reads and writes to the same attribute don't allocate. The noble strings of
+ * UUIDs sent to JS are cached the same way.
+ */
+final class RnbleUuids {
+    // Bluetooth base UUID 00000000-0000-1000-8000-00805F9B34FB used to expand 16 and 32 bit uuids
+    private static final long BASE_UUID_MSB = 0x0000000000001000L;
+    private static final long BASE_UUID_LSB = 0x800000805F9B34FBL;
+
+    private static final int MAX_CACHED = 512;
+    private static final ConcurrentHashMap<String, UUID> parsed = new ConcurrentHashMap<String, UUID>();
+    private static final ConcurrentHashMap<UUID, String> nobleStrings = new ConcurrentHashMap<UUID, String>();
+
+    private RnbleUuids() {}
+
+    /**
+     * Parses a 16, 32 or 128 bit uuid in noble ("180d", "0000180d00001000...") or
+     * Apple ("0000180D-0000-1000-...") format.
+     * @return the parsed uuid or null if the string is not a valid uuid
+     */
+    static UUID parse(String uuid) {
+        if(uuid == null) {return null;}
+        UUID result = parsed.get(uuid);
+        if(result == null) {
+            result = parseUncached(uuid);
+            if(result == null) {return null;}
+            if(parsed.size() >= MAX_CACHED) {parsed.clear();}
+            parsed.put(uuid, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the uuid in noble format, 32 lowercase hex digits without dashes
+     */
+    static String toNoble(UUID uuid) {
+        String result = nobleStrings.get(uuid);
+        if(result == null) {
+            char[] chars = new char[32];
+            RnbleHex.writeHex(chars, 0, uuid.getMostSignificantBits());
+            RnbleHex.writeHex(chars, 16, uuid.getLeastSignificantBits());
+            result = new String(chars);
+            if(nobleStrings.size() >= MAX_CACHED) {nobleStrings.clear();}
+            nobleStrings.put(uuid, result);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a uuid string from JS or the stack to noble format, short uuids stay short.
+     */
+    static String toNoble(String uuid) {
+        StringBuilder result = null;
+        for(int i = 0; i < uuid.length(); i++) {
+            char c = uuid.charAt(i);
+            boolean skip = c == '-' || c == '(' || c == ')' || Character.isWhitespace(c);
+            boolean upper = c >= 'A' && c <= 'Z';
+            if(result == null && (skip || upper)) {
+                result = new StringBuilder(uuid.length());
+                result.append(uuid, 0, i);
+            }
+            if(result != null && !skip) {
+                result.append(upper ? (char) (c + ('a' - 'A')) : c);
+            }
+        }
+        // strings already in noble format are returned as they are
+        return result != null ? result.toString() : uuid;
+    }
+
+    private static UUID parseUncached(String uuid) {
+        long msb = 0;
+        long lsb = 0;
+        int digits = 0;
+        for(int i = 0; i < uuid.length(); i++) {
+            char c = uuid.charAt(i);
+            if(c == '-') {continue;}
+            int value = Character.digit(c, 16);
+            if(value < 0 || digits == 32) {return null;}
+            if(digits < 16) {
+                msb = (msb << 4) | value;
+            } else {
+                lsb = (lsb << 4) | value;
+            }
+            digits++;
+        }
+
+        switch (digits) {
+            case 4:
+            case 8:
+                return new UUID((msb << 32) | BASE_UUID_MSB, BASE_UUID_LSB);
+            case 32:
+                return new UUID(msb, lsb);
+            default:
+                return null;
+        }
+    }
+}
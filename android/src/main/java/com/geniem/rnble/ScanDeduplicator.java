@@ -0,0 +1,178 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import java.util.Arrays;
+
+/**
+ * Fixed capacity set of recently reported device addresses used to filter duplicate
+ * advertisements. Addresses are packed into a long and stored in an open addressing table
+ * together with the time they were last reported, so a lookup doesn't allocate.
+ * An address is reported again once its time-to-live has passed, and the oldest entries
+ * are evicted when the table fills up.
+ * Only used on the module's Bluetooth thread.
+ */
+class ScanDeduplicator {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    // set on every stored key so that 0 can mark an empty slot
+    private static final long USED = 1L << 63;
+
+    private final int maxEntries;
+    private long ttlMs;
+    private long[] keys;
+    private long[] reportedAt;
+    private int size;
+
+    /**
+     * @param capacity maximum number of addresses remembered
+     * @param ttlMs time after which an address is reported again, 0 to report an address only once
+     */
+    ScanDeduplicator(int capacity, long ttlMs) {
+        this.maxEntries = Math.max(capacity, 16);
+        this.ttlMs = ttlMs;
+        // keep the load factor at or below 0.5
+        int tableSize = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        keys = new long[tableSize];
+        reportedAt = new long[tableSize];
+    }
+
+    void setTtl(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the advertisement of this address should be reported, the address is
+     * then remembered as reported at {@code nowMs}
+     */
+    boolean shouldReport(String address, long nowMs) {
+        long key = packAddress(address) | USED;
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != 0) {
+            if(keys[slot] == key) {
+                if(ttlMs > 0 && nowMs - reportedAt[slot] >= ttlMs) {
+                    reportedAt[slot] = nowMs;
+                    return true;
+                }
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if(size >= maxEntries) {
+            evict(nowMs);
+            // the table was rebuilt, find a new free slot
+            slot = hash(key) & mask;
+            while(keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        keys[slot] = key;
+        reportedAt[slot] = nowMs;
+        size++;
+        return true;
+    }
+
+    /**
+     * Drops expired entries. If nothing has expired, the older half of the entries (by report
+     * time) is dropped instead.
+     */
+    private void evict(long nowMs) {
+        long cutoff = ttlMs > 0 ? nowMs - ttlMs : Long.MIN_VALUE;
+        long oldest = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        int expired = 0;
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] == 0) {continue;}
+            if(reportedAt[i] <= cutoff) {expired++;}
+            oldest = Math.min(oldest, reportedAt[i]);
+            newest = Math.max(newest, reportedAt[i]);
+        }
+        if(expired == 0) {
+            cutoff = oldest + (newest - oldest) / 2;
+        }
+        rebuild(cutoff);
+    }
+
+    private void rebuild(long cutoff) {
+        long[] oldKeys = keys;
+        long[] oldReportedAt = reportedAt;
+        keys = new long[oldKeys.length];
+        reportedAt = new long[oldKeys.length];
+        size = 0;
+
+        int mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == 0 || oldReportedAt[i] <= cutoff) {continue;}
+            int slot = hash(oldKeys[i]) & mask;
+            while(keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            reportedAt[slot] = oldReportedAt[i];
+            size++;
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Packs a "AA:BB:CC:DD:EE:FF" MAC address into the lower 48 bits of a long.
+     */
+    static long packAddress(String address) {
+        long packed = 0;
+        int digits = 0;
+        for(int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if(c == ':') {continue;}
+            int value = Character.digit(c, 16);
+            if(value < 0) {
+                // not a MAC address, fall back to the string hash
+                return address.hashCode() & 0xffffffffL;
+            }
+            packed = (packed << 4) | value;
+            digits++;
+        }
+        return digits == 12 ? packed : address.hashCode() & 0xffffffffL;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.os.Build;
+import android.os.ParcelUuid;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Android specific options of startScanning, parsed once when the scan is started.
+ * <p/>
+ * Filters are built as separate ScanFilters so the Bluetooth controller can drop
+ * advertisements that match none of them before they wake up the app. Each filter may
+ * combine serviceUuid, serviceDataUuid + serviceData (+ serviceDataMask), manufacturerId +
+ * manufacturerData (+ manufacturerDataMask), name and address. Binary values are base64.
+ */
+class ScanOptions {
+    static final int DEFAULT_DISCOVER_BATCH_SIZE = 50;
+
+    final long duplicateTtl;
+    final int duplicateCacheSize;
+    final long batchInterval;
+    final int batchSize;
+    final int scanMode;
+    final long reportDelay;
+    final int callbackType;
+    final int matchMode;
+    final int numOfMatches;
+    final List<ScanFilter> filters;
+    final long scanWindow;
+    final long scanInterval;
+    final long idleTimeout;
+    // window the discovery rate is measured over to pick the foreground scan mode, 0 keeps scanMode
+    final long adaptiveInterval;
+    // results per window at or above which lowLatency is used, at or below which balanced is used
+    final int adaptiveHighRate;
+    final int adaptiveLowRate;
+    final boolean scanInBackground;
+    final int backgroundScanMode;
+    // RSSI thresholds of the proximity zones, empty if proximity isn't tracked
+    final double[] proximityZones;
+    final double proximityHysteresis;
+    final long proximityTimeout;
+    final int rssiFilter;
+    final double rssiSmoothing;
+    final double rssiProcessNoise;
+    final double rssiMeasurementNoise;
+    final double pathLossExponent;
+    // report a device only when its advertisement changes or it reappears, instead of allowDuplicates
+    final boolean reportChanges;
+    final long staleTimeout;
+    // keep the device registry for getDevices, implied by reportChanges
+    final boolean trackDevices;
+
+    /**
+     * @throws IllegalArgumentException if a filter or setting is invalid
+     */
+    ScanOptions(ReadableArray serviceUuids, ReadableMap options) {
+        duplicateTtl = (long) RnbleOptions.getDouble(options, "duplicateTtl", 0);
+        duplicateCacheSize = (int) RnbleOptions.getDouble(options, "duplicateCacheSize", ScanDeduplicator.DEFAULT_CAPACITY);
+        batchInterval = (long) RnbleOptions.getDouble(options, "batchInterval", 0);
+        batchSize = (int) RnbleOptions.getDouble(options, "batchSize", DEFAULT_DISCOVER_BATCH_SIZE);
+        scanMode = parseScanMode(RnbleOptions.getString(options, "scanMode", "lowLatency"));
+        reportDelay = (long) RnbleOptions.getDouble(options, "reportDelay", 0);
+        callbackType = parseCallbackType(RnbleOptions.getString(options, "callbackType", "allMatches"));
+        matchMode = "sticky".equals(RnbleOptions.getString(options, "matchMode", null)) ? ScanSettings.MATCH_MODE_STICKY : ScanSettings.MATCH_MODE_AGGRESSIVE;
+        numOfMatches = parseNumOfMatches(RnbleOptions.getString(options, "numOfMatches", "max"));
+        scanWindow = (long) RnbleOptions.getDouble(options, "scanWindow", 0);
+        // a shorter duty cycle would run into the platform's scan start limit
+        scanInterval = Math.max((long) RnbleOptions.getDouble(options, "scanInterval", 0), ScanScheduler.MIN_DUTY_CYCLE_MS);
+        idleTimeout = (long) RnbleOptions.getDouble(options, "idleTimeout", 0);
+        long interval = (long) RnbleOptions.getDouble(options, "adaptiveInterval", 0);
+        // every mode switch restarts the scan
+        adaptiveInterval = interval > 0 ? Math.max(interval, ScanScheduler.MIN_DUTY_CYCLE_MS) : 0;
+        adaptiveHighRate = (int) RnbleOptions.getDouble(options, "adaptiveHighRate", 10);
+        adaptiveLowRate = (int) RnbleOptions.getDouble(options, "adaptiveLowRate", 2);
+        scanInBackground = RnbleOptions.getBoolean(options, "scanInBackground", false);
+        backgroundScanMode = parseScanMode(RnbleOptions.getString(options, "backgroundScanMode", "lowPower"));
+        proximityZones = parseZones(options);
+        proximityHysteresis = RnbleOptions.getDouble(options, "proximityHysteresis", 3);
+        proximityTimeout = (long) RnbleOptions.getDouble(options, "proximityTimeout", 0);
+        rssiFilter = parseRssiFilter(RnbleOptions.getString(options, "rssiFilter", "kalman"));
+        rssiSmoothing = RnbleOptions.getDouble(options, "rssiSmoothing", 0.25);
+        rssiProcessNoise = RnbleOptions.getDouble(options, "rssiProcessNoise", 0.125);
+        rssiMeasurementNoise = RnbleOptions.getDouble(options, "rssiMeasurementNoise", 4);
+        pathLossExponent = RnbleOptions.getDouble(options, "pathLossExponent", 2);
+        reportChanges = RnbleOptions.getBoolean(options, "reportChanges", false);
+        staleTimeout = (long) RnbleOptions.getDouble(options, "staleTimeout", DeviceRegistry.DEFAULT_STALE_TIMEOUT_MS);
+        trackDevices = reportChanges || RnbleOptions.getBoolean(options, "trackDevices", false);
+
+        filters = new ArrayList<ScanFilter>();
+        // every requested service uuid gets its own filter, a device matching any of them is reported
+        if(serviceUuids != null) {
+            for(int i = 0; i < serviceUuids.size(); i++) {
+                filters.add(new ScanFilter.Builder().setServiceUuid(parseParcelUuid(serviceUuids.getString(i))).build());
+            }
+        }
+        if(options != null && options.hasKey("filters")) {
+            ReadableArray filterOptions = options.getArray("filters");
+            for(int i = 0; i < filterOptions.size(); i++) {
+                filters.add(buildFilter(filterOptions.getMap(i)));
+            }
+        }
+    }
+
+    boolean tracksProximity() {
+        return proximityZones.length > 0;
+    }
+
+    boolean isDutyCycled() {
+        return scanWindow > 0 && scanWindow < scanInterval;
+    }
+
+    /**
+     * @return true if a scan started with the other options can keep running for these options,
+     * apart from the scan mode
+     */
+    boolean hasSameFilters(ScanOptions other) {
+        return other != null && filters.equals(other.filters) && reportDelay == other.reportDelay
+            && callbackType == other.callbackType && matchMode == other.matchMode && numOfMatches == other.numOfMatches;
+    }
+
+    ScanSettings buildSettings(BluetoothAdapter adapter, int scanMode) {
+        ScanSettings.Builder builder = new ScanSettings.Builder();
+        builder.setScanMode(scanMode);
+        if(reportDelay > 0 && adapter != null && adapter.isOffloadedScanBatchingSupported()) {
+            builder.setReportDelay(reportDelay);
+        }
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            builder.setCallbackType(callbackType);
+            builder.setMatchMode(matchMode);
+            builder.setNumOfMatches(numOfMatches);
+        }
+        return builder.build();
+    }
+
+    private static double[] parseZones(ReadableMap options) {
+        if(options == null || !options.hasKey("proximityZones") || options.isNull("proximityZones")) {
+            return new double[0];
+        }
+        ReadableArray zones = options.getArray("proximityZones");
+        double[] thresholds = new double[zones.size()];
+        for(int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = zones.getDouble(i);
+        }
+        return thresholds;
+    }
+
+    static int parseRssiFilter(String filter) {
+        if("kalman".equals(filter)) {
+            return ProximityTracker.FILTER_KALMAN;
+        } else if("ema".equals(filter)) {
+            return ProximityTracker.FILTER_EMA;
+        } else if("none".equals(filter)) {
+            return ProximityTracker.FILTER_NONE;
+        }
+        throw new IllegalArgumentException("Unknown rssi filter " + filter);
+    }
+
+    private static ScanFilter buildFilter(ReadableMap filter) {
+        ScanFilter.Builder builder = new ScanFilter.Builder();
+        if(filter.hasKey("serviceUuid")) {
+            builder.setServiceUuid(parseParcelUuid(filter.getString("serviceUuid")));
+        }
+        if(filter.hasKey("serviceDataUuid")) {
+            ParcelUuid serviceDataUuid = parseParcelUuid(filter.getString("serviceDataUuid"));
+            byte[] data = RnbleOptions.getBytes(filter, "serviceData");
+            byte[] mask = RnbleOptions.getBytes(filter, "serviceDataMask");
+            if(mask != null) {
+                builder.setServiceData(serviceDataUuid, data, mask);
+            } else {
+                builder.setServiceData(serviceDataUuid, data);
+            }
+        }
+        if(filter.hasKey("manufacturerId")) {
+            int manufacturerId = filter.getInt("manufacturerId");
+            byte[] data = RnbleOptions.getBytes(filter, "manufacturerData");
+            byte[] mask = RnbleOptions.getBytes(filter, "manufacturerDataMask");
+            if(mask != null) {
+                builder.setManufacturerData(manufacturerId, data, mask);
+            } else {
+                builder.setManufacturerData(manufacturerId, data);
+            }
+        }
+        if(filter.hasKey("name")) {
+            builder.setDeviceName(filter.getString("name"));
+        }
+        if(filter.hasKey("address")) {
+            builder.setDeviceAddress(filter.getString("address").toUpperCase());
+        }
+        return builder.build();
+    }
+
+    private static ParcelUuid parseParcelUuid(String uuid) {
+        UUID parsed = RnbleUuids.parse(uuid);
+        if(parsed == null) {
+            throw new IllegalArgumentException("Invalid uuid " + uuid);
+        }
+        return new ParcelUuid(parsed);
+    }
+
+    static int parseScanMode(String scanMode) {
+        if("lowPower".equals(scanMode)) {
+            return ScanSettings.SCAN_MODE_LOW_POWER;
+        } else if("balanced".equals(scanMode)) {
+            return ScanSettings.SCAN_MODE_BALANCED;
+        } else if("opportunistic".equals(scanMode) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return ScanSettings.SCAN_MODE_OPPORTUNISTIC;
+        }
+        return ScanSettings.SCAN_MODE_LOW_LATENCY;
+    }
+
+    private static int parseCallbackType(String callbackType) {
+        if("firstMatch".equals(callbackType)) {
+            return ScanSettings.CALLBACK_TYPE_FIRST_MATCH;
+        } else if("matchLost".equals(callbackType)) {
+            return ScanSettings.CALLBACK_TYPE_MATCH_LOST;
+        } else if("firstMatchAndMatchLost".equals(callbackType)) {
+            return ScanSettings.CALLBACK_TYPE_FIRST_MATCH | ScanSettings.CALLBACK_TYPE_MATCH_LOST;
+        }
+        return ScanSettings.CALLBACK_TYPE_ALL_MATCHES;
+    }
+
+    private static int parseNumOfMatches(String numOfMatches) {
+        if("one".equals(numOfMatches)) {
+            return ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT;
+        } else if("few".equals(numOfMatches)) {
+            return ScanSettings.MATCH_NUM_FEW_ADVERTISEMENT;
+        }
+        return ScanSettings.MATCH_NUM_MAX_ADVERTISEMENT;
+    }
+}
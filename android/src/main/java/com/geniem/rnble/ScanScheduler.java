@@ -0,0 +1,269 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanSettings;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Owns the actual BluetoothLeScanner start and stop calls.
+ * <p/>
+ * Android silently ignores more than five startScan calls within 30 seconds, so scan requests
+ * from JS are merged: a stop quickly followed by a start with the same settings keeps the running
+ * scan, and restarts that would hit the limit are postponed. On top of that the scheduler can
+ * duty-cycle the scan (scanWindow / scanInterval), switch between low latency and balanced scanning
+ * by the number of results per adaptiveInterval, fall back to low power scanning when nothing
+ * has been discovered for a while (idleTimeout) and while the app is in the background.
+ * All methods must be called on the scheduler's handler thread.
+ */
+class ScanScheduler {
+    private static final String TAG = "ScanScheduler";
+
+    private static final int MAX_STARTS = 5;
+    private static final long START_LIMIT_WINDOW_MS = 30000;
+    // a little slack on top of the platform window, the platform clock isn't ours
+    private static final long START_LIMIT_MARGIN_MS = 500;
+    private static final long MERGE_DELAY_MS = 200;
+    static final long MIN_DUTY_CYCLE_MS = START_LIMIT_WINDOW_MS / MAX_STARTS + START_LIMIT_MARGIN_MS;
+
+    private final Handler handler;
+    private BluetoothLeScanner scanner;
+    private BluetoothAdapter adapter;
+
+    // requested state
+    private ScanOptions options;
+    private ScanCallback callback;
+    private boolean foreground = true;
+    // the lifecycle policy keeps every scan alive in the background
+    private boolean keepInBackground = false;
+    private boolean inWindow = true;
+    private boolean idle = false;
+    private long lastDiscovery;
+    // foreground scan mode, picked from the discovery rate if the scan is adaptive
+    private int foregroundMode;
+    private int windowResults;
+
+    // actual state
+    private ScanOptions runningOptions;
+    private int runningMode;
+    private final long[] starts = new long[MAX_STARTS];
+    private int startCount;
+
+    private final Runnable applyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            apply();
+        }
+    };
+
+    private final Runnable dutyCycleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            inWindow = !inWindow;
+            handler.postDelayed(this, inWindow ? options.scanWindow : options.scanInterval - options.scanWindow);
+            apply();
+        }
+    };
+
+    private final Runnable idleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long idleFor = SystemClock.elapsedRealtime() - lastDiscovery;
+            if(idleFor >= options.idleTimeout) {
+                if(!idle) {
+                    Log.d(TAG, "No discoveries for " + idleFor + " ms, switching to low power scanning");
+                    idle = true;
+                    apply();
+                }
+                handler.postDelayed(this, options.idleTimeout);
+            } else {
+                handler.postDelayed(this, options.idleTimeout - idleFor);
+            }
+        }
+    };
+
+    private final Runnable rateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            handler.postDelayed(this, options.adaptiveInterval);
+            int mode = foregroundMode;
+            if(windowResults >= options.adaptiveHighRate) {
+                mode = ScanSettings.SCAN_MODE_LOW_LATENCY;
+            } else if(windowResults <= options.adaptiveLowRate) {
+                mode = ScanSettings.SCAN_MODE_BALANCED;
+            }
+            if(mode != foregroundMode) {
+                Log.d(TAG, windowResults + " results in " + options.adaptiveInterval + " ms, switching to scan mode " + mode);
+                foregroundMode = mode;
+                scheduleApply(0);
+            }
+            windowResults = 0;
+        }
+    };
+
+    ScanScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    void setScanner(BluetoothLeScanner scanner, BluetoothAdapter adapter) {
+        this.scanner = scanner;
+        this.adapter = adapter;
+    }
+
+    boolean isScanRequested() {
+        return options != null;
+    }
+
+    void start(ScanOptions options, ScanCallback callback) {
+        this.options = options;
+        this.callback = callback;
+        inWindow = true;
+        idle = false;
+        lastDiscovery = SystemClock.elapsedRealtime();
+        foregroundMode = options.scanMode;
+        windowResults = 0;
+
+        handler.removeCallbacks(dutyCycleRunnable);
+        handler.removeCallbacks(idleRunnable);
+        handler.removeCallbacks(rateRunnable);
+        if(options.isDutyCycled()) {
+            handler.postDelayed(dutyCycleRunnable, options.scanWindow);
+        }
+        if(options.idleTimeout > 0) {
+            handler.postDelayed(idleRunnable, options.idleTimeout);
+        }
+        if(options.adaptiveInterval > 0) {
+            handler.postDelayed(rateRunnable, options.adaptiveInterval);
+        }
+        scheduleApply(MERGE_DELAY_MS);
+    }
+
+    void stop() {
+        options = null;
+        handler.removeCallbacks(dutyCycleRunnable);
+        handler.removeCallbacks(idleRunnable);
+        handler.removeCallbacks(rateRunnable);
+        scheduleApply(MERGE_DELAY_MS);
+    }
+
+    /**
+     * Stops the scan right away, e.g. when the module is destroyed.
+     */
+    void stopNow() {
+        options = null;
+        handler.removeCallbacks(dutyCycleRunnable);
+        handler.removeCallbacks(idleRunnable);
+        handler.removeCallbacks(rateRunnable);
+        handler.removeCallbacks(applyRunnable);
+        apply();
+    }
+
+    void setForeground(boolean foreground) {
+        if(this.foreground == foreground) {return;}
+        this.foreground = foreground;
+        scheduleApply(0);
+    }
+
+    void setKeepInBackground(boolean keepInBackground) {
+        if(this.keepInBackground == keepInBackground) {return;}
+        this.keepInBackground = keepInBackground;
+        if(!foreground) {scheduleApply(0);}
+    }
+
+    void onDiscovery() {
+        lastDiscovery = SystemClock.elapsedRealtime();
+        windowResults++;
+        if(idle) {
+            idle = false;
+            scheduleApply(0);
+        }
+    }
+
+    private void scheduleApply(long delay) {
+        handler.removeCallbacks(applyRunnable);
+        handler.postDelayed(applyRunnable, delay);
+    }
+
+    /**
+     * @return the scan mode that should be running now or null if no scan should be running
+     */
+    private Integer desiredMode() {
+        if(options == null || !inWindow) {return null;}
+        if(!foreground) {
+            return options.scanInBackground || keepInBackground ? Integer.valueOf(options.backgroundScanMode) : null;
+        }
+        return idle ? ScanSettings.SCAN_MODE_LOW_POWER : foregroundMode;
+    }
+
+    private void apply() {
+        if(scanner == null) {return;}
+        Integer mode = desiredMode();
+
+        if(mode == null) {
+            if(runningOptions != null) {
+                scanner.stopScan(callback);
+                runningOptions = null;
+            }
+            return;
+        }
+        if(runningOptions != null && runningMode == mode && runningOptions.hasSameFilters(options)) {
+            return;
+        }
+
+        long wait = startAllowedIn(SystemClock.elapsedRealtime());
+        if(wait > 0) {
+            Log.d(TAG, "Postponing scan start by " + wait + " ms to stay below the scan start limit");
+            scheduleApply(wait);
+            return;
+        }
+
+        if(runningOptions != null) {
+            scanner.stopScan(callback);
+        }
+        recordStart(SystemClock.elapsedRealtime());
+        scanner.startScan(options.filters, options.buildSettings(adapter, mode), callback);
+        runningOptions = options;
+        runningMode = mode;
+    }
+
+    private long startAllowedIn(long now) {
+        if(startCount < MAX_STARTS) {return 0;}
+        long oldest = starts[startCount % MAX_STARTS];
+        return Math.max(0, oldest + START_LIMIT_WINDOW_MS + START_LIMIT_MARGIN_MS - now);
+    }
+
+    private void recordStart(long now) {
+        starts[startCount % MAX_STARTS] = now;
+        startCount++;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.facebook.react.bridge.ReadableArray;
+
+import java.util.Arrays;
+
+/**
+ * A list of characteristic writes requested with one writeBatch() call. The writes are queued
+ * back to back inside a reliable write transaction, or as plain writes when the peripheral
+ * doesn't support reliable writes, and the result of every item is reported in one event.
+ */
+class WriteBatch {
+    // status of an item that hasn't completed yet
+    static final int PENDING = Integer.MIN_VALUE;
+
+    final String batchId;
+    final BluetoothGattCharacteristic[] characteristics;
+    final byte[][] values;
+    final int[] statuses;
+    // the items of the writeBatch() call, used to describe the results
+    final ReadableArray items;
+    // true while the batch runs inside a reliable write transaction
+    boolean reliable;
+    boolean begun;
+    boolean finished;
+    int pendingWrites;
+
+    WriteBatch(String batchId, ReadableArray items, boolean reliable) {
+        int size = items.size();
+        this.batchId = batchId;
+        this.items = items;
+        this.characteristics = new BluetoothGattCharacteristic[size];
+        this.values = new byte[size][];
+        this.statuses = new int[size];
+        this.reliable = reliable;
+        Arrays.fill(statuses, PENDING);
+    }
+
+    GattOperation write(int index) {
+        int writeType = reliable ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT : characteristics[index].getWriteType();
+        GattOperation operation = GattOperation.write(characteristics[index], values[index], writeType);
+        operation.batch = this;
+        operation.batchIndex = index;
+        return operation;
+    }
+
+    GattOperation execute() {
+        GattOperation operation = GattOperation.executeReliableWrite();
+        operation.batch = this;
+        return operation;
+    }
+
+    /**
+     * Marks the batch as finished, items that didn't complete get the given status.
+     */
+    void finish(int remainingStatus) {
+        finished = true;
+        for(int i = 0; i < statuses.length; i++) {
+            if(statuses[i] == PENDING) {statuses[i] = remainingStatus;}
+        }
+    }
+}
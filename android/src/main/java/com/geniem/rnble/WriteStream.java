@@ -0,0 +1,117 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * A large payload written to a characteristic in MTU sized chunks. Only one chunk of a stream is
+ * queued at a time: the next chunk is queued when onCharacteristicWrite reports that the previous
+ * one was accepted, which keeps the stream from overrunning the controller's buffers.
+ */
+class WriteStream {
+    final String streamId;
+    final BluetoothGattCharacteristic characteristic;
+    final int writeType;
+    private final byte[] data;
+    private final int chunkSize;
+    private final long progressInterval;
+    private final long startedAt;
+    private int offset;
+    private int chunkLength;
+    private long lastProgressAt;
+
+    /**
+     * @param progressInterval minimum ms between progress reports, 0 reports after every chunk
+     */
+    WriteStream(String streamId, BluetoothGattCharacteristic characteristic, byte[] data, int chunkSize, boolean withoutResponse, long progressInterval) {
+        this.streamId = streamId;
+        this.characteristic = characteristic;
+        this.data = data;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.writeType = withoutResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+        this.progressInterval = progressInterval;
+        this.startedAt = SystemClock.elapsedRealtime();
+        this.lastProgressAt = startedAt;
+    }
+
+    /**
+     * @return a write operation for the chunk following the last acknowledged one
+     */
+    GattOperation nextChunk() {
+        chunkLength = Math.min(chunkSize, data.length - offset);
+        GattOperation operation = GattOperation.write(characteristic, Arrays.copyOfRange(data, offset, offset + chunkLength), writeType);
+        operation.stream = this;
+        return operation;
+    }
+
+    /**
+     * Marks the chunk returned by the last {@link #nextChunk()} call as written.
+     */
+    void chunkWritten() {
+        offset += chunkLength;
+        chunkLength = 0;
+    }
+
+    boolean isComplete() {
+        return offset >= data.length;
+    }
+
+    /**
+     * @return true if a progress report is due, the report time is then reset
+     */
+    boolean progressDue() {
+        long now = SystemClock.elapsedRealtime();
+        if(now - lastProgressAt < progressInterval) {return false;}
+        lastProgressAt = now;
+        return true;
+    }
+
+    int bytesWritten() {
+        return offset;
+    }
+
+    int totalBytes() {
+        return data.length;
+    }
+
+    long elapsedMs() {
+        return SystemClock.elapsedRealtime() - startedAt;
+    }
+
+    /**
+     * @return bytes per second since the stream was started
+     */
+    double throughput() {
+        long elapsed = elapsedMs();
+        return elapsed > 0 ? offset * 1000.0 / elapsed : offset;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class BeaconDecoderTest {
+    private WritableMap beacon;
+
+    @Before
+    public void setUp() {
+        beacon = mock(WritableMap.class);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] data = new byte[values.length];
+        for(int i = 0; i < values.length; i++) {
+            data[i] = (byte) values[i];
+        }
+        return data;
+    }
+
+    @Test
+    public void decodesEddystoneUid() {
+        byte[] data = bytes(0x00, 0xec,
+            0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a,
+            0x0b, 0x0c, 0x0d, 0x0e, 0x0f, 0x10,
+            0x00, 0x00);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putString("type", "eddystoneUid");
+        verify(beacon).putInt("txPower", -20);
+        verify(beacon).putString("namespace", "0102030405060708090a");
+        verify(beacon).putString("instance", "0b0c0d0e0f10");
+    }
+
+    @Test
+    public void rejectsTruncatedEddystoneUid() {
+        assertFalse(BeaconDecoder.decodeEddystone(bytes(0x00, 0xec, 0x01, 0x02), beacon));
+        assertFalse(BeaconDecoder.decodeEddystone(bytes(0x00), beacon));
+        verifyZeroInteractions(beacon);
+    }
+
+    @Test
+    public void decodesEddystoneUrl() {
+        byte[] data = bytes(0x10, 0xf4, 0x01, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0x00, 'b', 'l', 'e');
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putString("type", "eddystoneUrl");
+        verify(beacon).putInt("txPower", -12);
+        verify(beacon).putString("url", "https://www.example.com/ble");
+    }
+
+    @Test
+    public void rejectsUnknownUrlScheme() {
+        assertFalse(BeaconDecoder.decodeEddystone(bytes(0x10, 0xf4, 0x04, 'a'), beacon));
+        verifyZeroInteractions(beacon);
+    }
+
+    @Test
+    public void decodesEddystoneTlm() {
+        byte[] data = bytes(0x20, 0x00,
+            0x0b, 0xb8,
+            0x18, 0x80,
+            0x00, 0x00, 0x01, 0x00,
+            0x00, 0x00, 0x00, 0x64);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putString("type", "eddystoneTlm");
+        verify(beacon).putInt("version", 0);
+        verify(beacon).putInt("batteryVoltage", 3000);
+        verify(beacon).putDouble("temperature", 24.5);
+        verify(beacon).putDouble("advertisementCount", 256);
+        verify(beacon).putDouble("uptime", 10);
+    }
+
+    @Test
+    public void decodesNegativeTlmTemperature() {
+        byte[] data = bytes(0x20, 0x00, 0x0b, 0xb8, 0xff, 0x80, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putDouble("temperature", -0.5);
+    }
+
+    @Test
+    public void sendsNullForUnsupportedTlmTemperature() {
+        byte[] data = bytes(0x20, 0x00, 0x0b, 0xb8, 0x80, 0x00, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putNull("temperature");
+    }
+
+    @Test
+    public void sendsEncryptedTlmAsHex() {
+        byte[] data = bytes(0x20, 0x01, 0xde, 0xad, 0xbe, 0xef);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putInt("version", 1);
+        verify(beacon).putString("etlm", "deadbeef");
+    }
+
+    @Test
+    public void rejectsTruncatedTlm() {
+        assertFalse(BeaconDecoder.decodeEddystone(bytes(0x20, 0x00, 0x0b, 0xb8), beacon));
+        verifyZeroInteractions(beacon);
+    }
+
+    @Test
+    public void decodesEddystoneEid() {
+        byte[] data = bytes(0x30, 0xf0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, 0x88);
+        assertTrue(BeaconDecoder.decodeEddystone(data, beacon));
+        verify(beacon).putString("type", "eddystoneEid");
+        verify(beacon).putInt("txPower", -16);
+        verify(beacon).putString("eid", "1122334455667788");
+    }
+
+    @Test
+    public void rejectsUnknownEddystoneFrame() {
+        assertFalse(BeaconDecoder.decodeEddystone(bytes(0x40, 0x00, 0x00, 0x00), beacon));
+        verifyZeroInteractions(beacon);
+    }
+
+    @Test
+    public void decodesIBeacon() {
+        byte[] data = bytes(0x02, 0x15,
+            0xe2, 0xc5, 0x6d, 0xb5, 0xdf, 0xfb, 0x48, 0xd2, 0xb0, 0x60, 0xd0, 0xf5, 0xa7, 0x10, 0x96, 0xe0,
+            0x00, 0x01,
+            0x01, 0x02,
+            0xc5);
+        assertTrue(BeaconDecoder.decodeIBeacon(data, beacon));
+        verify(beacon).putString("type", "iBeacon");
+        verify(beacon).putString("uuid", "e2c56db5dffb48d2b060d0f5a71096e0");
+        verify(beacon).putInt("major", 1);
+        verify(beacon).putInt("minor", 258);
+        verify(beacon).putInt("measuredPower", -59);
+    }
+
+    @Test
+    public void rejectsOtherAppleData() {
+        byte[] data = new byte[23];
+        data[0] = 0x10;
+        data[1] = 0x15;
+        assertFalse(BeaconDecoder.decodeIBeacon(data, beacon));
+        assertFalse(BeaconDecoder.decodeIBeacon(bytes(0x02, 0x15, 0x00), beacon));
+        verifyZeroInteractions(beacon);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConnectOptionsTest {
+    @Test
+    public void doublesTheDefaultReconnectDelayUpToTheCap() {
+        ConnectOptions options = new ConnectOptions(null);
+        assertEquals(1000, options.reconnectDelay(0));
+        assertEquals(2000, options.reconnectDelay(1));
+        assertEquals(16000, options.reconnectDelay(4));
+        assertEquals(30000, options.reconnectDelay(5));
+        assertEquals(30000, options.reconnectDelay(100));
+    }
+
+    @Test
+    public void capsTheConfiguredReconnectDelay() {
+        ConnectOptions options = new ConnectOptions(ReadableMaps.of("reconnectDelay", 500, "maxReconnectDelay", 3000));
+        assertEquals(500, options.reconnectDelay(0));
+        assertEquals(2000, options.reconnectDelay(2));
+        assertEquals(3000, options.reconnectDelay(3));
+        assertEquals(3000, options.reconnectDelay(20));
+    }
+
+    @Test
+    public void doesNotOverflowOnManyAttempts() {
+        ConnectOptions options = new ConnectOptions(ReadableMaps.of("reconnectDelay", 3600000, "maxReconnectDelay", Long.MAX_VALUE));
+        assertEquals(3600000L << 16, options.reconnectDelay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void capsTheMtu() {
+        assertEquals(0, new ConnectOptions(null).mtu);
+        assertEquals(247, new ConnectOptions(ReadableMaps.of("mtu", 247)).mtu);
+        assertEquals(ConnectOptions.MAX_MTU, new ConnectOptions(ReadableMaps.of("mtu", 1024)).mtu);
+    }
+}
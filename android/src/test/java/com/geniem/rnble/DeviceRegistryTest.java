@@ -0,0 +1,127 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// ScanRecord is final and has no public constructor, so devices are recorded without one
+public class DeviceRegistryTest {
+    private static String address(int i) {
+        return String.format("00:11:22:33:44:%02X", i);
+    }
+
+    private static List<String> addresses(DeviceRegistry registry) {
+        List<String> addresses = new ArrayList<String>();
+        for(DeviceRegistry.Device device : registry.getDevices()) {
+            addresses.add(device.address);
+        }
+        return addresses;
+    }
+
+    @Test
+    public void reportsNewDevices() {
+        DeviceRegistry registry = new DeviceRegistry(16);
+        assertTrue(registry.update(address(1), -60, null, 0));
+        assertFalse(registry.update(address(1), -60, null, 10));
+        assertTrue(registry.update(address(2), -60, null, 10));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void reportsDevicesAgainAfterStaleTimeout() {
+        DeviceRegistry registry = new DeviceRegistry(16);
+        registry.configure(16, 1000);
+        registry.update(address(1), -60, null, 0);
+        assertFalse(registry.update(address(1), -60, null, 999));
+        // the timeout counts from the last advertisement
+        assertFalse(registry.update(address(1), -60, null, 1998));
+        assertTrue(registry.update(address(1), -60, null, 2998));
+    }
+
+    @Test
+    public void keepsRssiStatistics() {
+        DeviceRegistry registry = new DeviceRegistry(16);
+        registry.update(address(1), -60, null, 100);
+        registry.update(address(1), -70, null, 200);
+        registry.update(address(1), -80, null, 300);
+        DeviceRegistry.Device device = registry.getDevices().iterator().next();
+        assertEquals(3, device.seenCount);
+        assertEquals(-80, device.rssi);
+        assertEquals(-80, device.rssiMin);
+        assertEquals(-60, device.rssiMax);
+        assertEquals(-70, device.rssiMean(), 1e-9);
+        assertEquals(100, device.firstSeen);
+        assertEquals(300, device.lastSeen);
+    }
+
+    @Test
+    public void dropsLeastRecentlySeenDevice() {
+        DeviceRegistry registry = new DeviceRegistry(16);
+        for(int i = 0; i < 16; i++) {
+            registry.update(address(i), -60, null, i);
+        }
+        registry.update(address(0), -60, null, 16);
+        registry.update(address(16), -60, null, 17);
+        assertEquals(16, registry.size());
+        List<String> addresses = addresses(registry);
+        assertFalse(addresses.contains(address(1)));
+        assertTrue(addresses.contains(address(0)));
+        assertTrue(addresses.contains(address(16)));
+        // least recently seen first
+        assertEquals(Arrays.asList(address(2), address(3)), addresses.subList(0, 2));
+    }
+
+    @Test
+    public void configureShrinksTheRegistry() {
+        DeviceRegistry registry = new DeviceRegistry(32);
+        for(int i = 0; i < 20; i++) {
+            registry.update(address(i), -60, null, i);
+        }
+        registry.configure(16, DeviceRegistry.DEFAULT_STALE_TIMEOUT_MS);
+        assertEquals(16, registry.size());
+        assertEquals(address(4), addresses(registry).get(0));
+    }
+
+    @Test
+    public void clearForgetsDevices() {
+        DeviceRegistry registry = new DeviceRegistry(16);
+        registry.update(address(1), -60, null, 0);
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertTrue(registry.update(address(1), -60, null, 0));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NotificationBufferTest {
+    private Handler handler;
+    private RecordingSink sink;
+
+    private static class RecordingSink implements NotificationBuffer.Sink {
+        byte[][] values;
+        int dropped;
+        int batches;
+
+        @Override
+        public void sendNotifications(NotificationBuffer buffer, byte[][] values, long[] timestamps, int dropped) {
+            this.values = values;
+            this.dropped = dropped;
+            batches++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // flushed by the tests, Handler methods are final and return defaults in unit tests
+        handler = new Handler();
+        sink = new RecordingSink();
+    }
+
+    private NotificationBuffer buffer(int capacity, int policy) {
+        return new NotificationBuffer(null, handler, 100, capacity, policy, sink);
+    }
+
+    private static void addValues(NotificationBuffer buffer, int count) {
+        for(int i = 0; i < count; i++) {
+            buffer.add(new byte[] {(byte) i});
+        }
+    }
+
+    @Test
+    public void sendsBufferedValuesInOrder() {
+        NotificationBuffer buffer = buffer(4, NotificationBuffer.DROP_OLDEST);
+        addValues(buffer, 3);
+        buffer.flush();
+        assertArrayEquals(new byte[][] {{0}, {1}, {2}}, sink.values);
+        assertEquals(0, sink.dropped);
+    }
+
+    @Test
+    public void dropOldestKeepsNewestValues() {
+        NotificationBuffer buffer = buffer(3, NotificationBuffer.DROP_OLDEST);
+        addValues(buffer, 5);
+        buffer.flush();
+        assertArrayEquals(new byte[][] {{2}, {3}, {4}}, sink.values);
+        assertEquals(2, sink.dropped);
+        assertEquals(2, buffer.totalDropped());
+    }
+
+    @Test
+    public void dropNewestKeepsOldestValues() {
+        NotificationBuffer buffer = buffer(3, NotificationBuffer.DROP_NEWEST);
+        addValues(buffer, 5);
+        buffer.flush();
+        assertArrayEquals(new byte[][] {{0}, {1}, {2}}, sink.values);
+        assertEquals(2, sink.dropped);
+    }
+
+    @Test
+    public void latestOnlyKeepsLastValue() {
+        NotificationBuffer buffer = buffer(64, NotificationBuffer.LATEST_ONLY);
+        addValues(buffer, 5);
+        buffer.flush();
+        assertArrayEquals(new byte[][] {{4}}, sink.values);
+        assertEquals(4, sink.dropped);
+    }
+
+    @Test
+    public void droppedCountStartsOverAfterFlush() {
+        NotificationBuffer buffer = buffer(2, NotificationBuffer.DROP_OLDEST);
+        addValues(buffer, 4);
+        buffer.flush();
+        addValues(buffer, 1);
+        buffer.flush();
+        assertEquals(0, sink.dropped);
+        assertEquals(2, buffer.totalDropped());
+        assertEquals(2, sink.batches);
+    }
+
+    @Test
+    public void wrapsAroundAfterFlush() {
+        NotificationBuffer buffer = buffer(3, NotificationBuffer.DROP_OLDEST);
+        addValues(buffer, 2);
+        buffer.flush();
+        addValues(buffer, 5);
+        buffer.flush();
+        assertArrayEquals(new byte[][] {{2}, {3}, {4}}, sink.values);
+    }
+
+    @Test
+    public void emptyFlushSendsNothing() {
+        NotificationBuffer buffer = buffer(3, NotificationBuffer.DROP_OLDEST);
+        buffer.flush();
+        assertEquals(0, sink.batches);
+    }
+
+    @Test
+    public void cancelDropsBufferedValues() {
+        NotificationBuffer buffer = buffer(3, NotificationBuffer.DROP_OLDEST);
+        addValues(buffer, 5);
+        buffer.cancel();
+        buffer.flush();
+        assertEquals(0, sink.batches);
+        assertNull(sink.values);
+    }
+
+    @Test
+    public void parsesPolicies() {
+        assertEquals(NotificationBuffer.DROP_OLDEST, NotificationBuffer.parsePolicy(null));
+        assertEquals(NotificationBuffer.DROP_OLDEST, NotificationBuffer.parsePolicy("dropOldest"));
+        assertEquals(NotificationBuffer.DROP_NEWEST, NotificationBuffer.parsePolicy("dropNewest"));
+        assertEquals(NotificationBuffer.LATEST_ONLY, NotificationBuffer.parsePolicy("latestOnly"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPolicy() {
+        NotificationBuffer.parsePolicy("dropAll");
+    }
+
+    @Test
+    public void batchingNeedsAnInterval() {
+        assertNull(NotificationBuffer.fromOptions(null, null, handler, sink));
+        assertNull(NotificationBuffer.fromOptions(ReadableMaps.of("batchInterval", 0), null, handler, sink));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ProximityTrackerTest {
+    private static final int UNKNOWN_POWER = Integer.MIN_VALUE;
+
+    // zone 0 from -60 dBm, zone 1 from -80 dBm, zone 2 beyond, given farthest first to check the sorting
+    private static ProximityTracker tracker(Object... options) {
+        Object[] keysAndValues = new Object[options.length + 4];
+        keysAndValues[0] = "proximityZones";
+        keysAndValues[1] = new double[] {-80, -60};
+        keysAndValues[2] = "proximityHysteresis";
+        keysAndValues[3] = 3;
+        System.arraycopy(options, 0, keysAndValues, 4, options.length);
+        return new ProximityTracker(new ScanOptions(null, ReadableMaps.of(keysAndValues)));
+    }
+
+    @Test
+    public void reportsZoneOfNewDevice() {
+        ProximityTracker tracker = tracker("rssiFilter", "none");
+        ProximityTracker.Device device = tracker.update("A", -50, UNKNOWN_POWER, 0);
+        assertEquals(0, device.zone);
+        assertEquals(ProximityTracker.ZONE_LOST, device.previousZone);
+        assertEquals(1, tracker.update("B", -70, UNKNOWN_POWER, 0).zone);
+        assertEquals(2, tracker.update("C", -90, UNKNOWN_POWER, 0).zone);
+    }
+
+    @Test
+    public void changesZoneOnlyPastTheHysteresis() {
+        ProximityTracker tracker = tracker("rssiFilter", "none");
+        tracker.update("A", -65, UNKNOWN_POWER, 0);
+        // within 3 dB of the -60 threshold
+        assertNull(tracker.update("A", -59, UNKNOWN_POWER, 1));
+        assertNull(tracker.update("A", -58, UNKNOWN_POWER, 2));
+        ProximityTracker.Device device = tracker.update("A", -57, UNKNOWN_POWER, 3);
+        assertNotNull(device);
+        assertEquals(0, device.zone);
+        assertEquals(1, device.previousZone);
+
+        // and back
+        assertNull(tracker.update("A", -61, UNKNOWN_POWER, 4));
+        assertNull(tracker.update("A", -63, UNKNOWN_POWER, 5));
+        device = tracker.update("A", -64, UNKNOWN_POWER, 6);
+        assertNotNull(device);
+        assertEquals(1, device.zone);
+        assertEquals(0, device.previousZone);
+    }
+
+    @Test
+    public void jumpsOverZones() {
+        ProximityTracker tracker = tracker("rssiFilter", "none");
+        tracker.update("A", -50, UNKNOWN_POWER, 0);
+        assertEquals(2, tracker.update("A", -95, UNKNOWN_POWER, 1).zone);
+    }
+
+    @Test
+    public void smoothsWithEma() {
+        ProximityTracker tracker = tracker("rssiFilter", "ema", "rssiSmoothing", 0.25);
+        ProximityTracker.Device device = tracker.update("A", -70, UNKNOWN_POWER, 0);
+        tracker.update("A", -50, UNKNOWN_POWER, 1);
+        assertEquals(-65, device.rssi, 1e-9);
+    }
+
+    @Test
+    public void smoothsWithKalman() {
+        ProximityTracker tracker = tracker("rssiFilter", "kalman", "rssiProcessNoise", 0.125, "rssiMeasurementNoise", 4);
+        ProximityTracker.Device device = tracker.update("A", -70, UNKNOWN_POWER, 0);
+        assertEquals(4, device.covariance, 1e-9);
+        tracker.update("A", -50, UNKNOWN_POWER, 1);
+        double predicted = 4 + 0.125;
+        double gain = predicted / (predicted + 4);
+        assertEquals(-70 + gain * 20, device.rssi, 1e-9);
+        assertEquals((1 - gain) * predicted, device.covariance, 1e-9);
+    }
+
+    @Test
+    public void kalmanIgnoresSingleOutlier() {
+        ProximityTracker kalman = tracker("rssiFilter", "kalman");
+        ProximityTracker none = tracker("rssiFilter", "none");
+        for(int i = 0; i < 50; i++) {
+            kalman.update("A", -70, UNKNOWN_POWER, i);
+            none.update("A", -70, UNKNOWN_POWER, i);
+        }
+        assertNull(kalman.update("A", -40, UNKNOWN_POWER, 50));
+        assertNotNull(none.update("A", -40, UNKNOWN_POWER, 50));
+    }
+
+    @Test
+    public void kalmanFollowsAMovedDevice() {
+        ProximityTracker tracker = tracker("rssiFilter", "kalman");
+        for(int i = 0; i < 50; i++) {
+            tracker.update("A", -70, UNKNOWN_POWER, i);
+        }
+        ProximityTracker.Device changed = null;
+        for(int i = 50; i < 100 && changed == null; i++) {
+            changed = tracker.update("A", -40, UNKNOWN_POWER, i);
+        }
+        assertNotNull(changed);
+        assertEquals(0, changed.zone);
+    }
+
+    @Test
+    public void expiresDevicesNotSeenForTheTimeout() {
+        ProximityTracker tracker = tracker("rssiFilter", "none", "proximityTimeout", 1000);
+        tracker.update("A", -50, UNKNOWN_POWER, 0);
+        tracker.update("B", -70, UNKNOWN_POWER, 800);
+        List<ProximityTracker.Device> lost = new ArrayList<ProximityTracker.Device>();
+        tracker.expire(1000, lost);
+        assertEquals(1, lost.size());
+        assertEquals("A", lost.get(0).address);
+        assertEquals(ProximityTracker.ZONE_LOST, lost.get(0).zone);
+        assertEquals(0, lost.get(0).previousZone);
+
+        // a lost device is new again
+        assertEquals(ProximityTracker.ZONE_LOST, tracker.update("A", -50, UNKNOWN_POWER, 1100).previousZone);
+    }
+
+    @Test
+    public void keepsDevicesWithoutTimeout() {
+        ProximityTracker tracker = tracker("rssiFilter", "none");
+        tracker.update("A", -50, UNKNOWN_POWER, 0);
+        List<ProximityTracker.Device> lost = new ArrayList<ProximityTracker.Device>();
+        tracker.expire(Long.MAX_VALUE, lost);
+        assertEquals(0, lost.size());
+    }
+
+    @Test
+    public void estimatesDistance() {
+        ProximityTracker tracker = tracker("rssiFilter", "none", "pathLossExponent", 2);
+        assertEquals(1, tracker.distance(tracker.update("A", -59, -59, 0)), 1e-9);
+        assertEquals(10, tracker.distance(tracker.update("B", -79, -59, 0)), 1e-9);
+        assertEquals(-1, tracker.distance(tracker.update("C", -79, UNKNOWN_POWER, 0)), 1e-9);
+    }
+}
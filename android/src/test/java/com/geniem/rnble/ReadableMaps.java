@@ -0,0 +1,77 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds mocked JS options, the bridge maps need the native library.
+ */
+final class ReadableMaps {
+    private ReadableMaps() {}
+
+    /**
+     * @param keysAndValues alternating keys and Number, String, Boolean or double[] values
+     */
+    static ReadableMap of(Object... keysAndValues) {
+        ReadableMap map = mock(ReadableMap.class);
+        for(int i = 0; i < keysAndValues.length; i += 2) {
+            String key = (String) keysAndValues[i];
+            Object value = keysAndValues[i + 1];
+            when(map.hasKey(key)).thenReturn(true);
+            if(value instanceof Number) {
+                when(map.getDouble(key)).thenReturn(((Number) value).doubleValue());
+                when(map.getInt(key)).thenReturn(((Number) value).intValue());
+            } else if(value instanceof String) {
+                when(map.getString(key)).thenReturn((String) value);
+            } else if(value instanceof Boolean) {
+                when(map.getBoolean(key)).thenReturn((Boolean) value);
+            } else if(value instanceof double[]) {
+                ReadableArray array = doubles((double[]) value);
+                when(map.getArray(key)).thenReturn(array);
+            } else {
+                throw new IllegalArgumentException("Unsupported value for " + key);
+            }
+        }
+        return map;
+    }
+
+    private static ReadableArray doubles(double[] values) {
+        ReadableArray array = mock(ReadableArray.class);
+        when(array.size()).thenReturn(values.length);
+        for(int i = 0; i < values.length; i++) {
+            when(array.getDouble(i)).thenReturn(values[i]);
+        }
+        return array;
+    }
+}
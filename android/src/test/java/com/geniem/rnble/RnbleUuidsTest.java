@@ -0,0 +1,94 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RnbleUuidsTest {
+    private static final UUID HEART_RATE = UUID.fromString("0000180d-0000-1000-8000-00805f9b34fb");
+
+    @Test
+    public void parsesShortUuids() {
+        assertEquals(HEART_RATE, RnbleUuids.parse("180d"));
+        assertEquals(HEART_RATE, RnbleUuids.parse("180D"));
+        assertEquals(HEART_RATE, RnbleUuids.parse("0000180d"));
+        assertEquals(UUID.fromString("1234abcd-0000-1000-8000-00805f9b34fb"), RnbleUuids.parse("1234abcd"));
+    }
+
+    @Test
+    public void parsesLongUuids() {
+        assertEquals(HEART_RATE, RnbleUuids.parse("0000180d00001000800000805f9b34fb"));
+        assertEquals(HEART_RATE, RnbleUuids.parse("0000180D-0000-1000-8000-00805F9B34FB"));
+        assertEquals(UUID.fromString("e2c56db5-dffb-48d2-b060-d0f5a71096e0"), RnbleUuids.parse("E2C56DB5DFFB48D2B060D0F5A71096E0"));
+    }
+
+    @Test
+    public void returnsNullForInvalidUuids() {
+        assertNull(RnbleUuids.parse(null));
+        assertNull(RnbleUuids.parse(""));
+        assertNull(RnbleUuids.parse("180"));
+        assertNull(RnbleUuids.parse("180g"));
+        assertNull(RnbleUuids.parse("0000180d00001000800000805f9b34fb0"));
+        assertNull(RnbleUuids.parse("0000180d-0000-1000-8000"));
+    }
+
+    @Test
+    public void formatsUuidInNobleFormat() {
+        assertEquals("0000180d00001000800000805f9b34fb", RnbleUuids.toNoble(HEART_RATE));
+        assertEquals("e2c56db5dffb48d2b060d0f5a71096e0", RnbleUuids.toNoble(UUID.fromString("E2C56DB5-DFFB-48D2-B060-D0F5A71096E0")));
+        assertEquals("00000000000000000000000000000000", RnbleUuids.toNoble(new UUID(0, 0)));
+    }
+
+    @Test
+    public void convertsStringsToNobleFormat() {
+        assertEquals("0000180d00001000800000805f9b34fb", RnbleUuids.toNoble("0000180D-0000-1000-8000-00805F9B34FB"));
+        assertEquals("180d", RnbleUuids.toNoble("180D"));
+        assertEquals("180d", RnbleUuids.toNoble("(180d)"));
+    }
+
+    @Test
+    public void keepsStringsAlreadyInNobleFormat() {
+        String uuid = "0000180d00001000800000805f9b34fb";
+        assertSame(uuid, RnbleUuids.toNoble(uuid));
+        String shortUuid = "180d";
+        assertSame(shortUuid, RnbleUuids.toNoble(shortUuid));
+    }
+
+    @Test
+    public void roundTrips() {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, RnbleUuids.parse(RnbleUuids.toNoble(uuid)));
+    }
+}
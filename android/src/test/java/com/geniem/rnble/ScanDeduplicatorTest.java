@@ -0,0 +1,127 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanDeduplicatorTest {
+    private static String address(int i) {
+        return String.format("00:11:22:33:%02X:%02X", i >> 8, i & 0xff);
+    }
+
+    @Test
+    public void reportsAnAddressOnceWithoutTtl() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 0);
+        assertTrue(deduplicator.shouldReport(address(1), 0));
+        assertFalse(deduplicator.shouldReport(address(1), 1000000));
+        assertTrue(deduplicator.shouldReport(address(2), 1000000));
+        assertEquals(2, deduplicator.size());
+    }
+
+    @Test
+    public void reportsAgainAfterTtl() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 100);
+        assertTrue(deduplicator.shouldReport(address(1), 0));
+        assertFalse(deduplicator.shouldReport(address(1), 99));
+        assertTrue(deduplicator.shouldReport(address(1), 100));
+        // the ttl restarts from the last report
+        assertFalse(deduplicator.shouldReport(address(1), 150));
+        assertTrue(deduplicator.shouldReport(address(1), 200));
+        assertEquals(1, deduplicator.size());
+    }
+
+    @Test
+    public void setTtlAppliesToRememberedAddresses() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 0);
+        deduplicator.shouldReport(address(1), 0);
+        deduplicator.setTtl(50);
+        assertTrue(deduplicator.shouldReport(address(1), 50));
+    }
+
+    @Test
+    public void evictsOlderHalfWhenFullAndNothingExpired() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 0);
+        for(int i = 0; i < 16; i++) {
+            assertTrue(deduplicator.shouldReport(address(i), i));
+        }
+        assertTrue(deduplicator.shouldReport(address(16), 16));
+        // reported at 0..7 are dropped, 8..15 and the new address are kept
+        assertEquals(9, deduplicator.size());
+        for(int i = 8; i <= 16; i++) {
+            assertFalse(deduplicator.shouldReport(address(i), 17));
+        }
+        assertTrue(deduplicator.shouldReport(address(0), 17));
+    }
+
+    @Test
+    public void evictsExpiredEntriesFirst() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 100);
+        for(int i = 0; i < 4; i++) {
+            deduplicator.shouldReport(address(i), 0);
+        }
+        for(int i = 4; i < 16; i++) {
+            deduplicator.shouldReport(address(i), 200);
+        }
+        assertTrue(deduplicator.shouldReport(address(16), 250));
+        assertEquals(13, deduplicator.size());
+        for(int i = 4; i <= 16; i++) {
+            assertFalse(deduplicator.shouldReport(address(i), 250));
+        }
+    }
+
+    @Test
+    public void staysWithinCapacity() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 0);
+        for(int i = 0; i < 1000; i++) {
+            assertTrue(deduplicator.shouldReport(address(i), i));
+            assertTrue(deduplicator.size() <= 16);
+        }
+    }
+
+    @Test
+    public void clearForgetsAddresses() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(16, 0);
+        deduplicator.shouldReport(address(1), 0);
+        deduplicator.clear();
+        assertEquals(0, deduplicator.size());
+        assertTrue(deduplicator.shouldReport(address(1), 0));
+    }
+
+    @Test
+    public void packAddress() {
+        assertEquals(0xaabbccddeeffL, ScanDeduplicator.packAddress("AA:BB:CC:DD:EE:FF"));
+        assertEquals(0xaabbccddeeffL, ScanDeduplicator.packAddress("aa:bb:cc:dd:ee:ff"));
+        assertEquals("not a mac".hashCode() & 0xffffffffL, ScanDeduplicator.packAddress("not a mac"));
+        assertEquals("AA:BB".hashCode() & 0xffffffffL, ScanDeduplicator.packAddress("AA:BB"));
+    }
+}
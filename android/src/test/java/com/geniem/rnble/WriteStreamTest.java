@@ -0,0 +1,102 @@
+/*
+
+The MIT License (MIT)
+
+Copyright (c) 2016 Esa Riihinen
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+
+
+*/
+
+
+package com.geniem.rnble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WriteStreamTest {
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        for(int i = 0; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    @Test
+    public void splitsPayloadIntoChunks() {
+        byte[] payload = payload(50);
+        WriteStream stream = new WriteStream("id", null, payload, 20, true, 0);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        int chunks = 0;
+        while(!stream.isComplete()) {
+            GattOperation chunk = stream.nextChunk();
+            assertSame(stream, chunk.stream);
+            assertEquals(chunks < 2 ? 20 : 10, chunk.value.length);
+            written.write(chunk.value, 0, chunk.value.length);
+            stream.chunkWritten();
+            chunks++;
+        }
+        assertEquals(3, chunks);
+        assertArrayEquals(payload, written.toByteArray());
+        assertEquals(50, stream.bytesWritten());
+        assertEquals(50, stream.totalBytes());
+    }
+
+    @Test
+    public void repeatsAChunkUntilItIsWritten() {
+        WriteStream stream = new WriteStream("id", null, payload(30), 20, true, 0);
+        GattOperation first = stream.nextChunk();
+        // e.g. the link was congested and the chunk is queued again
+        GattOperation retry = stream.nextChunk();
+        assertArrayEquals(first.value, retry.value);
+        assertEquals(0, stream.bytesWritten());
+        stream.chunkWritten();
+        assertEquals(20, stream.bytesWritten());
+        assertEquals(10, stream.nextChunk().value.length);
+    }
+
+    @Test
+    public void emptyPayloadIsComplete() {
+        assertTrue(new WriteStream("id", null, new byte[0], 20, true, 0).isComplete());
+        assertFalse(new WriteStream("id", null, new byte[1], 20, true, 0).isComplete());
+    }
+
+    @Test
+    public void usesTheRequestedWriteType() {
+        assertEquals(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE, new WriteStream("id", null, payload(1), 20, true, 0).nextChunk().writeType);
+        assertEquals(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT, new WriteStream("id", null, payload(1), 20, false, 0).nextChunk().writeType);
+    }
+
+    @Test
+    public void chunkSizeIsAtLeastOneByte() {
+        WriteStream stream = new WriteStream("id", null, payload(2), 0, true, 0);
+        assertEquals(1, stream.nextChunk().value.length);
+    }
+}
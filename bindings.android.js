@@ -15,25 +15,82 @@ var NobleBindings = function() {
   DeviceEventEmitter.addListener('ble.disconnect', this.onDisconnect.bind(this));  
   DeviceEventEmitter.addListener('ble.stateChange', this.onStateChange.bind(this));
   DeviceEventEmitter.addListener('ble.discover', this.onDiscover.bind(this));
+  DeviceEventEmitter.addListener('ble.discoverBatch', this.onDiscoverBatch.bind(this));
+  DeviceEventEmitter.addListener('ble.proximity', this.onProximity.bind(this));
   DeviceEventEmitter.addListener('ble.servicesDiscover', this.onServicesDiscover.bind(this));
   DeviceEventEmitter.addListener('ble.includedServicesDiscover', this.onIncludedServicesDiscover.bind(this));
   DeviceEventEmitter.addListener('ble.characteristicsDiscover', this.onCharacteristicsDiscover.bind(this));
   DeviceEventEmitter.addListener('ble.descriptorsDiscover', this.onDescriptorsDiscover.bind(this));
   DeviceEventEmitter.addListener('ble.data', this.onData.bind(this));
+  DeviceEventEmitter.addListener('ble.dataBatch', this.onDataBatch.bind(this));
   DeviceEventEmitter.addListener('ble.write', this.onWrite.bind(this));
   DeviceEventEmitter.addListener('ble.notify', this.onNotify.bind(this));
+  DeviceEventEmitter.addListener('ble.mtuChange', this.onMtuChange.bind(this));
+  DeviceEventEmitter.addListener('ble.servicesChange', this.onServicesChange.bind(this));
+  DeviceEventEmitter.addListener('ble.reconnecting', this.onReconnecting.bind(this));
+  DeviceEventEmitter.addListener('ble.backgroundSummary', this.onBackgroundSummary.bind(this));
+  DeviceEventEmitter.addListener('ble.metrics', this.onMetrics.bind(this));
+  DeviceEventEmitter.addListener('ble.writeStreamProgress', this.onWriteStreamProgress.bind(this));
+  DeviceEventEmitter.addListener('ble.writeStreamComplete', this.onWriteStreamComplete.bind(this));
+  DeviceEventEmitter.addListener('ble.writeBatch', this.onWriteBatch.bind(this));
+  DeviceEventEmitter.addListener('ble.readMany', this.onReadMany.bind(this));
+  DeviceEventEmitter.addListener('ble.attributesDiscover', this.onAttributesDiscover.bind(this));
+  DeviceEventEmitter.addListener('ble.payloadEncoding', this.onPayloadEncoding.bind(this));
+
+  // attribute trees from discoverAll or the discoverAll connect option by peripheral,
+  // discovery of a peripheral with a tree is answered without calling the native module
+  this.attributeTrees = {};
 
 
 };
 
 util.inherits(NobleBindings, events.EventEmitter);
 
-NobleBindings.prototype.onConnect = function({ peripheralUuid, error = null }) {
+NobleBindings.prototype.onConnect = function({ peripheralUuid, error = null, services = null }) {
+  if (services) {
+    this.attributeTrees[peripheralUuid] = services;
+  }
   this.emit('connect', peripheralUuid, error);
 };
 
-NobleBindings.prototype.onDisconnect = function({ peripheralUuid, error = null }) {
-  this.emit('disconnect', peripheralUuid, error);
+NobleBindings.prototype.onMtuChange = function({ peripheralUuid, mtu, error = null }) {
+  this.emit('mtuChange', peripheralUuid, mtu, error);
+};
+
+// the cached attribute tree the discovery was answered from was out of date, discover again
+NobleBindings.prototype.onServicesChange = function({ peripheralUuid }) {
+  delete this.attributeTrees[peripheralUuid];
+  this.emit('servicesChange', peripheralUuid);
+};
+
+// the events after this one carry payloads in the new encoding
+NobleBindings.prototype.onPayloadEncoding = function({ encoding }) {
+  payloadEncoding = encoding;
+};
+
+NobleBindings.prototype.onMetrics = function(metrics) {
+  this.emit('metrics', metrics);
+};
+
+NobleBindings.prototype.onDisconnect = function({ peripheralUuid, error = null, reconnecting = false }) {
+  delete this.attributeTrees[peripheralUuid];
+  this.emit('disconnect', peripheralUuid, error, reconnecting);
+};
+
+// 'connect' is emitted again once the link is back
+NobleBindings.prototype.onReconnecting = function({ peripheralUuid, attempt, delay }) {
+  this.emit('reconnecting', peripheralUuid, attempt, delay);
+};
+
+// sent on resume after the events of the background period were replayed
+NobleBindings.prototype.onBackgroundSummary = function(summary) {
+  this.emit('backgroundSummary', summary);
+};
+
+// services: [{ uuid, type, includedServiceUuids, characteristics: [{ uuid, properties, descriptors }] }]
+NobleBindings.prototype.onAttributesDiscover = function({ peripheralUuid, services }) {
+  this.attributeTrees[peripheralUuid] = services;
+  this.emit('attributesDiscover', peripheralUuid, services);
 };
 
 NobleBindings.prototype.onServicesDiscover = function({ peripheralUuid, serviceUuids }) {
@@ -57,16 +114,31 @@ NobleBindings.prototype.onDescriptorsDiscover = function({ peripheralUuid, servi
   this.emit('descriptorsDiscover', peripheralUuid, serviceUuid, characteristicUuid, descriptors);
 };
 
-NobleBindings.prototype.onNotify = function({ peripheralUuid, serviceUuid, characteristicUuid, notifyState }) {
-  this.emit('notify', peripheralUuid, serviceUuid, characteristicUuid, notifyState);
+// failures are passed on as the error argument, like the connect errors
+NobleBindings.prototype.onNotify = function({ peripheralUuid, serviceUuid, characteristicUuid, state, error = null }) {
+  this.emit('notify', peripheralUuid, serviceUuid, characteristicUuid, state, error);
 };
 
-NobleBindings.prototype.onData = function({ peripheralUuid, serviceUuid, characteristicUuid, data, isNotification }) {
-  let processedData = new Buffer(JSON.parse(data), 'base64');
+NobleBindings.prototype.onData = function({ peripheralUuid, serviceUuid, characteristicUuid, data, isNotification, error = null }) {
+  if (error) {
+    this.emit('read', peripheralUuid, serviceUuid, characteristicUuid, null, isNotification, error);
+    return;
+  }
+  let processedData = decodePayload(data);
   this.emit('data', peripheralUuid, serviceUuid, characteristicUuid, processedData, isNotification);
   this.emit('read', peripheralUuid, serviceUuid, characteristicUuid, processedData, isNotification);
 };
 
+// notifications collected natively by a batched notify() subscription
+NobleBindings.prototype.onDataBatch = function({ peripheralUuid, serviceUuid, characteristicUuid, data, timestamps, dropped, totalDropped }) {
+  let values = data.map(decodePayload);
+  this.emit('dataBatch', peripheralUuid, serviceUuid, characteristicUuid, values, timestamps, { dropped, totalDropped });
+  values.forEach(function(value) {
+    this.emit('data', peripheralUuid, serviceUuid, characteristicUuid, value, true);
+    this.emit('read', peripheralUuid, serviceUuid, characteristicUuid, value, true);
+  }, this);
+};
+
 NobleBindings.prototype.onStateChange = function(params) {
   // 'unknown', 'resetting', 'unsupported', 'unauthorized', 'poweredOff', 'poweredOn'
   debug('state change ' + params.state);
@@ -75,21 +147,54 @@ NobleBindings.prototype.onStateChange = function(params) {
 
 NobleBindings.prototype.onDiscover = function({ id, address, addressType, advertisement, connectable, rssi }) {  
   if (advertisement.manufacturerData) {
-    advertisement.manufacturerData = new Buffer(JSON.parse(advertisement.manufacturerData), 'base64');
+    advertisement.manufacturerData = decodePayload(advertisement.manufacturerData);
   }
 
   if (advertisement.serviceData) {
     advertisement.serviceData = advertisement.serviceData.map(({ uuid, data }) => ({
       uuid,
-      data: new Buffer(JSON.parse(data), 'base64'),
+      data: decodePayload(data),
     }));
   } 
 
+  if (advertisement.manufacturerDataList) {
+    advertisement.manufacturerDataList = advertisement.manufacturerDataList.map(({ companyId, data }) => ({
+      companyId,
+      data: decodePayload(data),
+    }));
+  }
+
   this.emit('discover', id, address, addressType, connectable, advertisement, rssi);
 };
 
-NobleBindings.prototype.onWrite = function({ peripheralUuid, serviceUuid, characteristicUuid }) {
-  this.emit('write', peripheralUuid, serviceUuid, characteristicUuid);
+NobleBindings.prototype.onDiscoverBatch = function({ peripherals }) {
+  peripherals.forEach(this.onDiscover, this);
+};
+
+// zone -1 means the device wasn't seen for the proximity timeout
+NobleBindings.prototype.onProximity = function({ peripheralUuid, zone, previousZone, rssi, distance }) {
+  this.emit('proximity', peripheralUuid, zone, previousZone, rssi, distance);
+};
+
+NobleBindings.prototype.onWrite = function({ peripheralUuid, serviceUuid, characteristicUuid, error = null }) {
+  this.emit('write', peripheralUuid, serviceUuid, characteristicUuid, error);
+};
+
+NobleBindings.prototype.onWriteStreamProgress = function({ peripheralUuid, serviceUuid, characteristicUuid, streamId, bytesWritten, totalBytes }) {
+  this.emit('writeStreamProgress', peripheralUuid, serviceUuid, characteristicUuid, streamId, bytesWritten, totalBytes);
+};
+
+NobleBindings.prototype.onWriteStreamComplete = function({ peripheralUuid, serviceUuid, characteristicUuid, streamId, bytesWritten, totalBytes, duration, throughput, error = null }) {
+  this.emit('writeStreamComplete', peripheralUuid, serviceUuid, characteristicUuid, streamId, error, { bytesWritten, totalBytes, duration, throughput });
+};
+
+NobleBindings.prototype.onWriteBatch = function({ peripheralUuid, batchId, reliable, results, error = null }) {
+  this.emit('writeBatch', peripheralUuid, batchId, error, results, reliable);
+};
+
+// results: [{ serviceUuid, characteristicUuid, status, data }], status 0 means the value was read
+NobleBindings.prototype.onReadMany = function({ peripheralUuid, readId, results }) {
+  this.emit('readMany', peripheralUuid, readId, decodeReadResults(results));
 };
 
 var nobleBindings = new NobleBindings();
@@ -100,18 +205,51 @@ nobleBindings.init = function() {
   }, 1000);
 };
 
+// Android specific connect options, see RNBLEModule.connect
+nobleBindings.connectOptions = {};
+nobleBindings.peripheralConnectOptions = {};
+
+// sets the connect options of one peripheral, or the default options if peripheralUuid is omitted
+nobleBindings.setConnectOptions = function(options, peripheralUuid) {
+  if (peripheralUuid) {
+    this.peripheralConnectOptions[peripheralUuid] = options || {};
+  } else {
+    this.connectOptions = options || {};
+  }
+};
+
 nobleBindings.connect = function(deviceUuid) {
-  RNBLE.connect(deviceUuid);
+  RNBLE.connect(deviceUuid, this.peripheralConnectOptions[deviceUuid] || this.connectOptions);
+};
+
+// removes the cached attribute trees of a peripheral, or of all peripherals if peripheralUuid is omitted
+nobleBindings.clearAttributeCache = function(peripheralUuid) {
+  RNBLE.clearAttributeCache(peripheralUuid || null);
+};
+
+nobleBindings.requestMtu = function(deviceUuid, mtu) {
+  RNBLE.requestMtu(deviceUuid, mtu);
+};
+
+// 'high', 'balanced' or 'lowPower'
+nobleBindings.requestConnectionPriority = function(deviceUuid, priority) {
+  RNBLE.requestConnectionPriority(deviceUuid, priority);
 };
 
 nobleBindings.disconnect = function(deviceUuid) {
   RNBLE.disconnect(deviceUuid);
 };
 
+// Android specific scan options, see RNBLEModule.startScanning
+nobleBindings.scanOptions = {};
+
+nobleBindings.setScanOptions = function(options) {
+  this.scanOptions = options || {};
+};
+
 nobleBindings.startScanning = function(serviceUuids, allowDuplicates) {
   var duplicates = allowDuplicates || false;
-  let serviceUuid = serviceUuids ? serviceUuids.pop() : null;
-  RNBLE.startScanning(toAppleUuids(serviceUuids), duplicates);
+  RNBLE.startScanning(toAppleUuids(serviceUuids), duplicates, this.scanOptions);
   this.emit('scanStart');
 };
 
@@ -120,38 +258,253 @@ nobleBindings.stopScanning = function() {
   this.emit('scanStop');
 };
 
+// sends the whole attribute tree with an 'attributesDiscover' event, later discovery calls are answered from it
+nobleBindings.discoverAll = function(deviceUuid) {
+  RNBLE.discoverAll(deviceUuid);
+};
+
+nobleBindings.discoverAllAsync = function(deviceUuid) {
+  return RNBLE.discoverAllAsync(deviceUuid).then((services) => {
+    this.attributeTrees[deviceUuid] = services;
+    return services;
+  });
+};
+
 nobleBindings.discoverServices = function(deviceUuid, uuids) {
+  var tree = this.attributeTrees[deviceUuid];
+  if (tree) {
+    var serviceUuids = filterByUuid(tree, uuids).map((service) => service.uuid);
+    setTimeout(() => this.emit('servicesDiscover', deviceUuid, serviceUuids), 0);
+    return;
+  }
   RNBLE.discoverServices(deviceUuid, toAppleUuids(uuids));
 };
 
 nobleBindings.discoverIncludedServices = function(deviceUuid, serviceUuid, serviceUuids) {
-  throw new Error('discoverIncludedServices not yet implemented');
+  var tree = this.attributeTrees[deviceUuid];
+  if (tree) {
+    var service = findByUuid(tree, serviceUuid);
+    var includedServiceUuids = service ? service.includedServiceUuids.filter((uuid) => matchesUuids(uuid, serviceUuids)) : [];
+    setTimeout(() => this.emit('includedServicesDiscover', deviceUuid, serviceUuid, includedServiceUuids), 0);
+    return;
+  }
+  RNBLE.discoverIncludedServices(deviceUuid, toAppleUuid(serviceUuid), toAppleUuids(serviceUuids));
 };
 
 nobleBindings.discoverCharacteristics = function(deviceUuid, serviceUuid, characteristicUuids) {
+  var tree = this.attributeTrees[deviceUuid];
+  if (tree) {
+    var service = findByUuid(tree, serviceUuid);
+    var characteristics = service ? filterByUuid(service.characteristics, characteristicUuids).map(({ uuid, properties }) => ({ uuid, properties })) : [];
+    setTimeout(() => this.emit('characteristicsDiscover', deviceUuid, serviceUuid, characteristics), 0);
+    return;
+  }
   RNBLE.discoverCharacteristics(deviceUuid, toAppleUuid(serviceUuid), toAppleUuids(characteristicUuids));
 };
 
 nobleBindings.discoverDescriptors = function(deviceUuid, serviceUuid, characteristicUuid) {
+  var tree = this.attributeTrees[deviceUuid];
+  if (tree) {
+    var service = findByUuid(tree, serviceUuid);
+    var characteristic = service ? findByUuid(service.characteristics, characteristicUuid) : null;
+    var descriptors = characteristic ? characteristic.descriptors : [];
+    setTimeout(() => this.emit('descriptorsDiscover', deviceUuid, serviceUuid, characteristicUuid, descriptors), 0);
+    return;
+  }
   RNBLE.discoverDescriptors(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid));
 };
 
+// reads, writes and notify use the promise variants, so every result reaches the request it belongs to,
+// a rejection is emitted with the error as last argument
 nobleBindings.read = function(deviceUuid, serviceUuid, characteristicUuid) {
-  RNBLE.read(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid));
+  this.readAsync(deviceUuid, serviceUuid, characteristicUuid).then((data) => {
+    this.emit('data', deviceUuid, serviceUuid, characteristicUuid, data, false);
+    this.emit('read', deviceUuid, serviceUuid, characteristicUuid, data, false);
+  }, (error) => {
+    this.emit('read', deviceUuid, serviceUuid, characteristicUuid, null, false, error);
+  });
 };
 
 nobleBindings.write = function(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse) {
-  RNBLE.write(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid), data.toString("base64"), withoutResponse);
+  this.writeAsync(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse).then(() => {
+    this.emit('write', deviceUuid, serviceUuid, characteristicUuid, null);
+  }, (error) => {
+    this.emit('write', deviceUuid, serviceUuid, characteristicUuid, error);
+  });
 };
 
-nobleBindings.notify = function(deviceUuid, serviceUuid, characteristicUuid, notify) {
-  RNBLE.notify(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid), notify);
+// resolves with the value as a Buffer, rejects with the GATT status as error code
+nobleBindings.readAsync = function(deviceUuid, serviceUuid, characteristicUuid) {
+  return RNBLE.readAsync(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid)).then(decodePayload);
 };
 
+nobleBindings.writeAsync = function(deviceUuid, serviceUuid, characteristicUuid, data, withoutResponse) {
+  return RNBLE.writeAsync(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid), data.toString("base64"), !!withoutResponse);
+};
+
+// resolves with the notification state
+nobleBindings.notifyAsync = function(deviceUuid, serviceUuid, characteristicUuid, notify, options) {
+  return RNBLE.notifyAsync(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid), notify, options || null);
+};
+
+nobleBindings.discoverServicesAsync = function(deviceUuid, uuids) {
+  return RNBLE.discoverServicesAsync(deviceUuid, toAppleUuids(uuids));
+};
+
+nobleBindings.discoverCharacteristicsAsync = function(deviceUuid, serviceUuid, characteristicUuids) {
+  return RNBLE.discoverCharacteristicsAsync(deviceUuid, toAppleUuid(serviceUuid), toAppleUuids(characteristicUuids));
+};
+
+nobleBindings.discoverDescriptorsAsync = function(deviceUuid, serviceUuid, characteristicUuid) {
+  return RNBLE.discoverDescriptorsAsync(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid));
+};
+
+var nextStreamId = 1;
+
+// options: withoutResponse (default true), chunkSize (default MTU - 3), progressInterval (ms)
+// returns the stream id passed to the writeStreamProgress and writeStreamComplete events
+nobleBindings.writeStream = function(deviceUuid, serviceUuid, characteristicUuid, data, options) {
+  var streamId = String(nextStreamId++);
+  var streamOptions = Object.assign({}, options, { streamId: streamId });
+  RNBLE.writeStream(deviceUuid, toAppleUuid(serviceUuid), toAppleUuid(characteristicUuid), data.toString('base64'), streamOptions);
+  return streamId;
+};
+
+var nextBatchId = 1;
+
+// items: [{ serviceUuid, characteristicUuid, data }], options: reliable (default true)
+// returns the batch id passed to the writeBatch event
+nobleBindings.writeBatch = function(deviceUuid, items, options) {
+  var batchId = String(nextBatchId++);
+  var batchItems = items.map(function(item) {
+    return {
+      serviceUuid: toAppleUuid(item.serviceUuid),
+      characteristicUuid: toAppleUuid(item.characteristicUuid),
+      data: item.data.toString('base64'),
+    };
+  });
+  RNBLE.writeBatch(deviceUuid, batchItems, Object.assign({}, options, { batchId: batchId }));
+  return batchId;
+};
+
+var nextReadId = 1;
+
+function toReadItems(items) {
+  return items.map(function(item) {
+    return {
+      serviceUuid: toAppleUuid(item.serviceUuid),
+      characteristicUuid: toAppleUuid(item.characteristicUuid),
+    };
+  });
+}
+
+function decodeReadResults(results) {
+  return results.map(function(result) {
+    return Object.assign({}, result, { data: result.data != null ? decodePayload(result.data) : null });
+  });
+}
+
+// items: [{ serviceUuid, characteristicUuid }], options: interval (ms, repeats the reads natively until stopReadMany)
+// returns the read id passed to the readMany event
+nobleBindings.readMany = function(deviceUuid, items, options) {
+  var readId = String(nextReadId++);
+  RNBLE.readMany(deviceUuid, toReadItems(items), Object.assign({}, options, { readId: readId }));
+  return readId;
+};
+
+nobleBindings.stopReadMany = function(deviceUuid, readId) {
+  RNBLE.stopReadMany(deviceUuid, readId);
+};
+
+// resolves with the results of one round
+nobleBindings.readManyAsync = function(deviceUuid, items) {
+  return RNBLE.readManyAsync(deviceUuid, toReadItems(items)).then(decodeReadResults);
+};
+
+// options: batchInterval (ms, notifications are delivered in batches when set),
+// bufferSize (default 64), overflow ('dropOldest' (default), 'dropNewest' or 'latestOnly')
+nobleBindings.notify = function(deviceUuid, serviceUuid, characteristicUuid, notify, options) {
+  this.notifyAsync(deviceUuid, serviceUuid, characteristicUuid, notify, options).then((state) => {
+    this.emit('notify', deviceUuid, serviceUuid, characteristicUuid, state, null);
+  }, (error) => {
+    // the notification state stays as it was
+    this.emit('notify', deviceUuid, serviceUuid, characteristicUuid, !notify, error);
+  });
+};
+
+// resolves with { devices, total }, the devices seen while scanning, closest first
+// filter: maxAge (ms), minRssi, name (prefix), serviceUuid, limit
+nobleBindings.getDevices = function(filter) {
+  return RNBLE.getDevices(filter || null);
+};
+
+// resolves with the metrics, reset starts a new measurement period
+nobleBindings.getMetrics = function(reset) {
+  return RNBLE.getMetrics(!!reset);
+};
+
+// emits a metrics event every intervalMs, 0 stops them
+nobleBindings.setMetricsInterval = function(intervalMs) {
+  RNBLE.setMetricsInterval(intervalMs || 0);
+};
+
+// options: background ('close' (default), 'keep' or 'service'), replay ('all' (default), 'summary' or 'none'),
+// maxBufferedEvents, notificationTitle, notificationText
+nobleBindings.setLifecyclePolicy = function(options) {
+  RNBLE.setLifecyclePolicy(options || null);
+};
+
+// options: timeout, maxRetries, retryDelay, maxQueueDepth, requestTimeout (ms a promise waits for its result)
+nobleBindings.setOperationQueueOptions = function(options) {
+  RNBLE.setOperationQueueOptions(options);
+};
+
+// encoding of characteristic values and advertisement data sent by the native module,
+// switched by the 'ble.payloadEncoding' event so events already on their way are decoded the old way
+var payloadEncoding = 'base64';
+
+// 'base64' (default) or 'hex'
+nobleBindings.setPayloadEncoding = function(encoding) {
+  RNBLE.setPayloadEncoding(encoding === 'hex' ? 'hex' : 'base64');
+};
+
+function decodePayload(data) {
+  return new Buffer(data, payloadEncoding);
+}
+
 function toAppleUuid(uuid) {
  return uuid.replace(/(\S{8})(\S{4})(\S{4})(\S{4})(\S{12})/, "$1-$2-$3-$4-$5").toUpperCase();
 }
 
+// expands 16 and 32 bit uuids to the 128 bit noble format the native module sends
+function toFullUuid(uuid) {
+  var noble = uuid.replace(/-/g, '').toLowerCase();
+  if (noble.length === 4) {
+    noble = '0000' + noble;
+  }
+  if (noble.length === 8) {
+    noble = noble + '00001000800000805f9b34fb';
+  }
+  return noble;
+}
+
+function matchesUuids(uuid, uuids) {
+  if (!uuids || uuids.length === 0) {
+    return true;
+  }
+  var full = toFullUuid(uuid);
+  return uuids.some((candidate) => toFullUuid(candidate) === full);
+}
+
+function findByUuid(attributes, uuid) {
+  var full = toFullUuid(uuid);
+  return attributes.find((attribute) => toFullUuid(attribute.uuid) === full) || null;
+}
+
+function filterByUuid(attributes, uuids) {
+  return attributes.filter((attribute) => matchesUuids(attribute.uuid, uuids));
+}
+
 function toAppleUuids(uuids) {
   var convertedUuids = [];
 